@@ -22,6 +22,7 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
     private final Map<String, Class<?>> classes = new HashMap<>();
     private final Map<String, Class<?>> resultClasses = new HashMap<>();
     private final Map<String, AccessibleObject> binds = new HashMap<>();
+    private final Map<String, List<AccessibleObject>> paths = new HashMap<>();
     private final Map<String, List<String>> subspaces = new HashMap<>();
     private final Map<String, Map<String, DescriptionEntry>> descriptions = new HashMap<>();
     private final String namespace;
@@ -61,6 +62,11 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
 
         this.resultClasses.put(key, bind.getClazz());
         this.binds.put(key, bind.getAccessible());
+
+        if(!bind.getPath().isEmpty()) {
+            this.paths.put(key, bind.getPath());
+        }
+
         this.classes.put(key, this.clazz);
         this.subspaces.get(this.subspace).add(tag);
         this.descriptions.get(this.subspace).put(tag, description);
@@ -80,11 +86,12 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
             throw new NoSuchFieldException("Cannot find collection field " + tag + " in class " + this.clazz.getName() + ".");
         }
 
-        return new ArgumentResolverDataBinder<>(requireGeneric(bind.getAccessible(), tag), this, tag);
+        return new ArgumentResolverDataBinder<>(requireGeneric(bind.getAccessible(), tag), this, getSubspaceKey(tag));
     }
 
     /**
-     * Добавить описание для тега (описания будут использоваться при обработке ошибок)
+     * Добавить описание для тега (описания будут использоваться при обработке ошибок). Описания переносятся в
+     * поставщик типов по build(), поэтому описание нужно добавлять до него.
      *
      * @param tag тег
      * @param description описание
@@ -110,19 +117,27 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
     /**
      * Биндит тег на значение поля класс. То-есть при запросе поля `tag` проводником будет возвращено значение поля
      * `reference` таким образом предоставляя удобную прослойку между обработчиком и объектом на который нацелен данный биндер.
+     * <p>
+     * Поле можно указать путем через точку, например bind("city", "address.city"), тогда значение получается по цепочке
+     * полей, а если промежуточное значение null, то и значение тега null.
      *
      * @param tag тег для биндинга
-     * @param fieldOrMethodName на какое поле ссылается
+     * @param fieldOrMethodName на какое поле ссылается (или путь до него через точку)
      * @param description описание поля (опционально)
      * @return текущая фабрика
-     * @throws NoSuchFieldException если поля в текущем обрабатываемом классе нет
+     * @throws NoSuchFieldException если поля в текущем обрабатываемом классе нет, или указан путь, а родитель не
+     * поддерживает бинды по пути (см. {@link TypeProvider#supportsPaths()})
      */
     public ArgumentResolverDataBinder<T, P> bind(@NotNull String tag, @NotNull String fieldOrMethodName, String description) throws NoSuchFieldException {
         if(!tagNamePattern.matcher(tag).matches()) {
             throw new RuntimeException("Bad tag name '" + tag + "'. Allowed only aA-zZаА-яЯ pattern match tag names.");
         }
 
-        var bind = findTree(this.clazz, fieldOrMethodName);
+        if(fieldOrMethodName.indexOf('.') >= 0 && !supportsPaths()) {
+            throw new NoSuchFieldException("Cannot bind path " + fieldOrMethodName + ", path binds are not supported by " + parent.getClass().getName() + ".");
+        }
+
+        var bind = findPath(this.clazz, fieldOrMethodName);
 
         if(bind != null) {
             addBind(tag, DescriptionEntry.of(description, clazz), bind);
@@ -133,6 +148,39 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
         return this;
     }
 
+    /**
+     * Биндит тег условия на логическое значение поля класса. Тег условия используется маркерами условных блоков
+     * ({@code #tag ... /tag} и {@code ^tag ... /tag}), блоки с ложным условием удаляются из шаблона до поиска тегов.
+     *
+     * @param tag тег условия
+     * @param fieldOrMethodName на какое поле ссылается (тип boolean или Boolean)
+     * @return текущая фабрика
+     * @throws NoSuchFieldException если поля в текущем обрабатываемом классе нет, или оно не логическое
+     */
+    public ArgumentResolverDataBinder<T, P> when(@NotNull String tag, @NotNull String fieldOrMethodName) throws NoSuchFieldException {
+        return when(tag, fieldOrMethodName, null);
+    }
+
+    /**
+     * Биндит тег условия на логическое значение поля класса. Тег условия используется маркерами условных блоков
+     * ({@code #tag ... /tag} и {@code ^tag ... /tag}), блоки с ложным условием удаляются из шаблона до поиска тегов.
+     *
+     * @param tag тег условия
+     * @param fieldOrMethodName на какое поле ссылается (тип boolean или Boolean)
+     * @param description описание поля (опционально)
+     * @return текущая фабрика
+     * @throws NoSuchFieldException если поля в текущем обрабатываемом классе нет, или оно не логическое
+     */
+    public ArgumentResolverDataBinder<T, P> when(@NotNull String tag, @NotNull String fieldOrMethodName, String description) throws NoSuchFieldException {
+        var bind = findPath(this.clazz, fieldOrMethodName);
+
+        if(bind == null || (bind.getClazz() != boolean.class && bind.getClazz() != Boolean.class)) {
+            throw new NoSuchFieldException("Cannot find boolean field " + fieldOrMethodName + " in class " + this.clazz.getName() + ".");
+        }
+
+        return bind(tag, fieldOrMethodName, description);
+    }
+
     /**
      * Биндит тег на значение поля класс. То-есть при запросе поля `tag` проводником будет возвращено значение поля
      * `reference` таким образом предоставляя удобную прослойку между обработчиком и объектом на который нацелен данный биндер.
@@ -163,7 +211,8 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
      * @param fieldOrMethodName на какое поле ссылается
      * @param description описание поля (опционально)
      * @return новая фабрика
-     * @throws NoSuchFieldException если поля в текущем обрабатываемом классе нет
+     * @throws NoSuchFieldException если поля в текущем обрабатываемом классе нет, или указан путь, а родитель не
+     * поддерживает бинды по пути (см. {@link TypeProvider#supportsPaths()})
      */
     @Contract("_, _, _ -> new")
     public @NotNull ArgumentResolverDataBinder<?, ArgumentResolverDataBinder<T, P>> sub(@NotNull String tag, @NotNull String fieldOrMethodName, String description) throws NoSuchFieldException {
@@ -171,7 +220,11 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
             throw new RuntimeException("Bad tag name '" + tag + "'. Allowed only aA-zZаА-яЯ pattern match tag names.");
         }
 
-        var bind = findTree(this.clazz, fieldOrMethodName);
+        if(fieldOrMethodName.indexOf('.') >= 0 && !supportsPaths()) {
+            throw new NoSuchFieldException("Cannot bind path " + fieldOrMethodName + ", path binds are not supported by " + parent.getClass().getName() + ".");
+        }
+
+        var bind = findPath(this.clazz, fieldOrMethodName);
 
         if(bind != null) {
             addBind(tag, DescriptionEntry.of(description, clazz), bind);
@@ -183,7 +236,18 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
             throw new NoSuchFieldException("Cannot find collection field " + fieldOrMethodName + " in class " + this.clazz.getName() + ".");
         }
 
-        return new ArgumentResolverDataBinder<>(requireGeneric(bind.getAccessible(), tag), this, tag);
+        return new ArgumentResolverDataBinder<>(requireGeneric(bind.getAccessible(), tag), this, getSubspaceKey(tag));
+    }
+
+    /**
+     * Получить ключ подпространства итерируемого тега. Подпространство вложенного итерируемого тега включает
+     * подпространство внешнего (например lines#taxes), поэтому одинаковые теги разных уровней не пересекаются.
+     *
+     * @param tag итерируемый тег
+     * @return ключ подпространства
+     */
+    private String getSubspaceKey(String tag) {
+        return namespace != null ? ProcessorArgumentResolver.getSubPropertyIndex(namespace, tag) : tag;
     }
 
     /**
@@ -209,11 +273,49 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
      * @return родительский билдер
      */
     public P build() {
-        this.parent.provide(this.classes, this.resultClasses, this.subspaces, this.binds, this.descriptions); return parent;
+        this.parent.provide(this.classes, this.resultClasses, this.subspaces, this.binds, this.paths, this.descriptions); return parent;
+    }
+
+    /**
+     * Ищет член класса по пути через точку (например address.city), каждый следующий член ищется в типе предыдущего.
+     * Путь без точки ищется как обычный член класса.
+     *
+     * @param clazz целевой класс для поиска
+     * @param name путь до члена
+     * @return найденный элемент, или null если член пути не найден
+     * @throws NoSuchFieldException если путь проходит через коллекцию
+     */
+    private static @Nullable TreeResult findPath(Class<?> clazz, @NotNull String name) throws NoSuchFieldException {
+        if(name.indexOf('.') < 0) {
+            return findTree(clazz, name);
+        }
+
+        var path = new ArrayList<AccessibleObject>();
+        var names = name.split("\\.");
+        var current = clazz;
+
+        for(var i = 0; i < names.length - 1; i++) {
+            var element = findTree(current, names[i]);
+
+            if(element == null) {
+                return null;
+            }
+
+            if(Collection.class.isAssignableFrom(element.getClazz()) || element.getClazz().isPrimitive()) {
+                throw new NoSuchFieldException("Cannot bind path " + name + " through " + names[i] + " in class " + current.getName() + ".");
+            }
+
+            path.add(element.getAccessible());
+            current = element.getClazz();
+        }
+
+        var last = findTree(current, names[names.length - 1]);
+
+        return last != null ? new TreeResult(List.copyOf(path), last.getAccessible()) : null;
     }
 
     /**
-     * Ищет член класса по дереву, интерфейсы классы и т.д.
+     * Ищет член класса по дереву, интерфейсы классы и т.д. Методы с параметрами не биндятся и пропускаются.
      *
      * @param clazz целевой класс для поиска
      * @param name название члена для поиска
@@ -246,7 +348,7 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
                     while(bind == null && iterator.hasNext()) {
                         var method = iterator.next();
 
-                        if(method.getName().equals(name)) {
+                        if(method.getName().equals(name) && method.getParameterCount() == 0) {
                             bind = method;
                         }
                     }
@@ -281,12 +383,42 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
         }
     }
 
+    /**
+     * Бинды по пути поддерживаются, если их поддерживает родитель, которому переносятся бинды
+     *
+     * @return true если бинды по пути поддерживаются
+     */
+    @Override
+    public boolean supportsPaths() {
+        return parent.supportsPaths();
+    }
+
+    /**
+     * Перенести данные из внешнего источника
+     * @param classes список соответствий тегов и классов
+     * @param resultClasses список соответствий полей (или методов) и их типов (или типов их возвращаемых значений)
+     * @param subspaces список соответсвия подпространств и набора тегов (для разных подпространств разный набор тегов)
+     * @param binds список соответствий полей и биндингов
+     * @param descriptions список описаний для каждого отдельного бинда
+     */
+    @Override
+    public void provide(
+        @NotNull Map<String, Class<?>> classes,
+        @NotNull Map<String, Class<?>> resultClasses,
+        @NotNull Map<String, List<String>> subspaces,
+        @NotNull Map<String, AccessibleObject> binds,
+        @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
+    ) {
+        provide(classes, resultClasses, subspaces, binds, Map.of(), descriptions);
+    }
+
     /**
      * Перенести данные из внешнего источника
      * @param classes список соответствий тегов и классов
      * @param resultClasses список соответствий полей (или методов) и их типов (или типов их возвращаемых значений)
      * @param subspaces список соответсвия подпространств и набора тегов (для разных подпространств разный набор тегов)
      * @param binds список соответствий полей и биндингов
+     * @param paths список соответствий биндов по пути и членов пути до поля (или метода) бинда
      * @param descriptions список описаний для каждого отдельного бинда
      */
     @Override
@@ -295,9 +427,12 @@ public final class ArgumentResolverDataBinder<T, P extends TypeProvider> impleme
         @NotNull Map<String, Class<?>> resultClasses,
         @NotNull Map<String, List<String>> subspaces,
         @NotNull Map<String, AccessibleObject> binds,
+        @NotNull Map<String, List<AccessibleObject>> paths,
         @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
     ) {
         this.binds.putAll(binds);
+        this.paths.keySet().removeAll(binds.keySet());
+        this.paths.putAll(paths);
         this.classes.putAll(classes);
         this.resultClasses.putAll(resultClasses);
 
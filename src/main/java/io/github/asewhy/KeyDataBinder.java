@@ -0,0 +1,228 @@
+package io.github.asewhy;
+
+import io.github.asewhy.support.BindAccessor;
+import io.github.asewhy.support.DescriptionEntry;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Биндит теги на ключи карты ({@link Map}), без рефлексии и промежуточных классов. Подходит для данных, которые
+ * приходят в виде карт или дерева json (объекты json - карты, массивы - списки). Значение тега получается из карты
+ * по ключу, ключ можно указать путем через точку (например customer.address.city).
+ *
+ * Карта поставляется поставщику данных под классом источника, например:
+ * <pre>
+ *     typeProvider.provideKeys(Map.class).bind("number", "number").build();
+ *     processor.provide(Map.class, () -> json);
+ * </pre>
+ *
+ * @param <P> тип родителя, которому возвращается управление по {@link KeyDataBinder#build()}
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class KeyDataBinder<P> {
+    private static final Pattern tagNamePattern = Pattern.compile("[aA-zZаА-яЯ]+");
+
+    private final P parent;
+    private final ProcessorTypeProvider target;
+    private final Class<?> source;
+    private final Map<String, Class<?>> classes;
+    private final Map<String, Class<?>> resultClasses;
+    private final Map<String, BindAccessor> accessors;
+    private final Map<String, List<String>> subspaces;
+    private final Map<String, Map<String, DescriptionEntry>> descriptions;
+    private final String namespace;
+    private final String subspace;
+
+    /**
+     * Биндер основного подпространства
+     *
+     * @param source класс, под которым карта поставляется поставщику данных
+     * @param parent родитель
+     * @param target поставщик типов, в который переносятся бинды по {@link KeyDataBinder#build()}
+     */
+    KeyDataBinder(@NotNull Class<?> source, P parent, @NotNull ProcessorTypeProvider target) {
+        this(source, parent, target, new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), null);
+    }
+
+    private KeyDataBinder(
+        Class<?> source,
+        P parent,
+        ProcessorTypeProvider target,
+        Map<String, Class<?>> classes,
+        Map<String, Class<?>> resultClasses,
+        Map<String, BindAccessor> accessors,
+        Map<String, List<String>> subspaces,
+        Map<String, Map<String, DescriptionEntry>> descriptions,
+        String namespace
+    ) {
+        this.source = source;
+        this.parent = parent;
+        this.target = target;
+        this.classes = classes;
+        this.resultClasses = resultClasses;
+        this.accessors = accessors;
+        this.subspaces = subspaces;
+        this.descriptions = descriptions;
+        this.namespace = namespace;
+        this.subspace = namespace != null ? namespace : ProcessorTypeProvider.MAIN_SUBSPACE;
+
+        this.descriptions.putIfAbsent(subspace, new HashMap<>());
+        this.subspaces.putIfAbsent(subspace, new ArrayList<>());
+    }
+
+    /**
+     * Биндит теги на одноименные ключи карты
+     *
+     * @param keys ключи
+     * @return текущая фабрика
+     */
+    public KeyDataBinder<P> keys(String @NotNull ... keys) {
+        for(var key: keys) {
+            bind(key, key);
+        }
+
+        return this;
+    }
+
+    /**
+     * Биндит тег на значение карты по ключу
+     *
+     * @param tag тег для биндинга
+     * @param key ключ значения (или путь ключей через точку)
+     * @return текущая фабрика
+     */
+    public KeyDataBinder<P> bind(@NotNull String tag, @NotNull String key) {
+        return bind(tag, key, null);
+    }
+
+    /**
+     * Биндит тег на значение карты по ключу
+     *
+     * @param tag тег для биндинга
+     * @param key ключ значения (или путь ключей через точку)
+     * @param description описание поля (опционально)
+     * @return текущая фабрика
+     */
+    public KeyDataBinder<P> bind(@NotNull String tag, @NotNull String key, String description) {
+        addBind(tag, key, Object.class, description); return this;
+    }
+
+    /**
+     * Биндит тег условия на значение карты по ключу. Тег условия используется маркерами условных блоков
+     * ({@code #tag ... /tag} и {@code ^tag ... /tag}).
+     *
+     * @param tag тег условия
+     * @param key ключ значения (или путь ключей через точку)
+     * @return текущая фабрика
+     */
+    public KeyDataBinder<P> when(@NotNull String tag, @NotNull String key) {
+        return when(tag, key, null);
+    }
+
+    /**
+     * Биндит тег условия на значение карты по ключу. Тег условия используется маркерами условных блоков
+     * ({@code #tag ... /tag} и {@code ^tag ... /tag}).
+     *
+     * @param tag тег условия
+     * @param key ключ значения (или путь ключей через точку)
+     * @param description описание поля (опционально)
+     * @return текущая фабрика
+     */
+    public KeyDataBinder<P> when(@NotNull String tag, @NotNull String key, String description) {
+        addBind(tag, key, Boolean.class, description); return this;
+    }
+
+    /**
+     * Биндит итерируемый тег на список (массив json) по ключу. Элементы списка - карты, теги подпространства
+     * биндятся на их ключи в возвращаемой фабрике.
+     *
+     * @param tag итерируемый тег
+     * @param key ключ списка (или путь ключей через точку)
+     * @return новая фабрика
+     */
+    @Contract("_, _ -> new")
+    public @NotNull KeyDataBinder<KeyDataBinder<P>> sub(@NotNull String tag, @NotNull String key) {
+        return sub(tag, key, null);
+    }
+
+    /**
+     * Биндит итерируемый тег на список (массив json) по ключу. Элементы списка - карты, теги подпространства
+     * биндятся на их ключи в возвращаемой фабрике.
+     *
+     * @param tag итерируемый тег
+     * @param key ключ списка (или путь ключей через точку)
+     * @param description описание поля (опционально)
+     * @return новая фабрика
+     */
+    @Contract("_, _, _ -> new")
+    public @NotNull KeyDataBinder<KeyDataBinder<P>> sub(@NotNull String tag, @NotNull String key, String description) {
+        addBind(tag, key, List.class, description);
+
+        return new KeyDataBinder<>(
+            source,
+            this,
+            target,
+            classes,
+            resultClasses,
+            accessors,
+            subspaces,
+            descriptions,
+            namespace != null ? ProcessorArgumentResolver.getSubPropertyIndex(namespace, tag) : tag
+        );
+    }
+
+    /**
+     * Добавить описание для тега (описания будут использоваться при обработке ошибок). Описания переносятся в
+     * поставщик типов по build(), поэтому описание нужно добавлять до него.
+     *
+     * @param tag тег
+     * @param description описание
+     * @return текущая фабрика
+     */
+    public KeyDataBinder<P> desc(String tag, String description) {
+        this.descriptions.get(this.subspace).put(tag, DescriptionEntry.of(description, source)); return this;
+    }
+
+    /**
+     * Закончить биндинг подпространства. Бинды основного подпространства (вместе с подпространствами итерируемых
+     * тегов) переносятся в поставщик типов.
+     *
+     * @return родитель
+     */
+    public P build() {
+        if(namespace == null) {
+            target.provideAccessors(classes, resultClasses, subspaces, accessors, descriptions);
+        }
+
+        return parent;
+    }
+
+    /**
+     * Добавить бинд тега на ключ
+     *
+     * @param tag тег
+     * @param key ключ значения (или путь ключей через точку)
+     * @param resultClass тип значения
+     * @param description описание
+     */
+    private void addBind(@NotNull String tag, @NotNull String key, Class<?> resultClass, String description) {
+        if(!tagNamePattern.matcher(tag).matches()) {
+            throw new RuntimeException("Bad tag name '" + tag + "'. Allowed only aA-zZаА-яЯ pattern match tag names.");
+        }
+
+        if(key.isEmpty()) {
+            throw new IllegalArgumentException("Key of tag '" + tag + "' cannot be empty.");
+        }
+
+        var index = namespace != null ? ProcessorArgumentResolver.getSubPropertyIndex(namespace, tag) : tag;
+
+        this.classes.put(index, source);
+        this.resultClasses.put(index, resultClass);
+        this.accessors.put(index, BindAccessor.key(key));
+        this.subspaces.get(this.subspace).add(tag);
+        this.descriptions.get(this.subspace).put(tag, DescriptionEntry.of(description, source));
+    }
+}
@@ -1,17 +1,61 @@
 package io.github.asewhy;
 
 import io.github.asewhy.interfaces.DataResolver;
+import io.github.asewhy.support.BindAccessor;
+import io.github.asewhy.support.ItemPath;
+import io.github.asewhy.support.ProcessorCounter;
+import io.github.asewhy.support.ProcessorMetrics;
+import io.github.asewhy.support.ProcessorProfiler;
 import lombok.Getter;
+import lombok.Setter;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("UnusedReturnValue")
 public class ProcessorArgumentResolver {
-    private final Map<String, Object> datacache;
+    /**
+     * Кеши значений допускают одновременное обращение (таблицы могут обрабатываться параллельно), поэтому null
+     * в них хранится как {@link ProcessorArgumentResolver#NULL}
+     */
+    private static final Object NULL = new Object();
+
+    private volatile Map<String, Object> datacache;
+    private final Map<String, IterableCache> iterables = new ConcurrentHashMap<>();
+
+    /**
+     * Промежуточные объекты биндов по пути (например address для address.city) основного подпространства, по классу
+     * объекта начала пути. Хранятся в течение одной обработки.
+     */
+    private final Map<Class<?>, Map<String, Object>> intermediates = new ConcurrentHashMap<>();
+
+    /**
+     * Объекты данных, из которых получены значения, сохраненные между обработками, по классу (null хранится как
+     * {@link ProcessorArgumentResolver#NULL})
+     */
+    private final Map<Class<?>, Object> retainedSources = new ConcurrentHashMap<>();
+
+    /**
+     * Объекты данных текущей обработки по классу, когда значения сохраняются между обработками
+     */
+    private final Map<Class<?>, Object> renderSources = new ConcurrentHashMap<>();
+
+    /**
+     * Сколько значений тегов сохранять между обработками. 0 - значения хранятся только в течение одной обработки
+     * и очищаются по ее завершении, больше 0 - значения основного подпространства переживают обработку, но их
+     * не больше заданного количества (давно не использованные вытесняются). Значения итерируемых тегов
+     * всегда освобождаются по завершении таблицы.
+     * <p>
+     * Сохраненные значения класса действительны, пока поставщик данных возвращает для него тот же объект: в каждой
+     * обработке объект данных получается заново и, если это другой объект, значения этого класса сбрасываются.
+     * Изменения полей того же объекта не отслеживаются, после них нужно вызвать {@link ProcessorArgumentResolver#clear()}.
+     */
+    @Getter
+    private int retainedCapacity = 0;
 
     @Getter
     private final ProcessorDataProvider dataProvider;
@@ -19,6 +63,13 @@ public class ProcessorArgumentResolver {
     @Getter
     private final ProcessorTypeProvider typeProvider;
 
+    @Getter
+    @Setter
+    private ProcessorMetrics metrics = new ProcessorMetrics(ProcessorArgumentResolver.class, false);
+
+    @Getter
+    private volatile ProcessorProfiler profiler;
+
     /**
      * Автоматически разрешает пути до полей, на которых был повешен бинд в {@link ProcessorTypeProvider}
      *
@@ -30,7 +81,7 @@ public class ProcessorArgumentResolver {
     public ProcessorArgumentResolver(ProcessorTypeProvider typeProvider, ProcessorDataProvider dataProvider) {
         this.typeProvider = typeProvider;
         this.dataProvider = dataProvider;
-        this.datacache = new HashMap<>();
+        this.datacache = createDatacache(0);
     }
 
     /**
@@ -73,7 +124,7 @@ public class ProcessorArgumentResolver {
      * @return текущий поставщик данных
      */
     public <T> ProcessorArgumentResolver provide(Class<T> clazz, DataResolver<T> resolver) {
-        dataProvider.provide(clazz, resolver); return this;
+        dataProvider.provide(clazz, resolver); clear(); return this;
     }
 
     /**
@@ -83,7 +134,7 @@ public class ProcessorArgumentResolver {
      * @return себя
      */
     public ProcessorArgumentResolver provide(Object object) {
-        dataProvider.provide(ReflectionUtils.skipAnonClasses(object.getClass()), object); return this;
+        dataProvider.provide(ReflectionUtils.skipAnonClasses(object.getClass()), object); clear(); return this;
     }
 
     /**
@@ -93,67 +144,142 @@ public class ProcessorArgumentResolver {
      * @return себя
      */
     public ProcessorArgumentResolver provide(@NotNull ProcessorArgumentResolver resolver) {
-        dataProvider.provide(resolver.dataProvider); return this;
+        dataProvider.provide(resolver.dataProvider); clear(); return this;
     }
 
     /**
-     * Получить свойство от объекта object
+     * Создать дочерний набор данных. Поставщик типов общий, а поставщик данных дочерний (см.
+     * {@link ProcessorDataProvider#child()}), поэтому данные текущего набора не копируются, а сам он замораживается.
+     * Если включено профилирование, то дочерний набор пишет в тот же профилировщик.
      *
-     * @param data данные, из которых нужно получить свойство
-     * @param cast поле, которое нужно получить от объекта data
-     * @return значение поля
+     * @return дочерний набор данных
      */
-    private @Nullable Object getPropertyOfObject(Object data, @NotNull Field cast) {
-        if (data == null) {
-            return null;
-        }
+    public ProcessorArgumentResolver child() {
+        var result = new ProcessorArgumentResolver(typeProvider, dataProvider.child());
 
-        try {
-            var access = cast.canAccess(data);
+        result.profiler = profiler;
 
-            if(!access) {
-                cast.setAccessible(true);
-            }
+        return result;
+    }
+
+    /**
+     * Создать набор данных с теми же поставщиками типов и данных, но со своим кешем значений и метриками. Используется
+     * обработками, которые выполняются параллельно с обработками текущего набора (например отрисовка по частям).
+     *
+     * @return набор данных с отдельным состоянием
+     */
+    public ProcessorArgumentResolver detach() {
+        return new ProcessorArgumentResolver(typeProvider, dataProvider);
+    }
 
-            var result = cast.get(data);
+    /**
+     * Установить, сколько значений тегов сохранять между обработками. Значения сохраняются только пока поставщик
+     * данных возвращает те же объекты данных (см. {@link ProcessorArgumentResolver#retainedCapacity})
+     *
+     * @param retainedCapacity 0 - очищать значения по завершении каждой обработки, больше 0 - максимальное
+     *                         количество значений, которые сохраняются между обработками
+     */
+    public void setRetainedCapacity(int retainedCapacity) {
+        this.retainedCapacity = retainedCapacity;
+        this.datacache = createDatacache(retainedCapacity);
 
-            cast.setAccessible(access);
+        retainedSources.clear();
+        renderSources.clear();
+    }
 
-            return result;
-        } catch (IllegalAccessException e) {
-            return null;
+    /**
+     * Закончить обработку шаблона: освободить значения итерируемых тегов, и если значения не сохраняются между
+     * обработками, то очистить кеш значений
+     */
+    public void endRender() {
+        iterables.clear();
+        intermediates.clear();
+        renderSources.clear();
+
+        if(retainedCapacity <= 0) {
+            datacache.clear();
         }
     }
 
     /**
-     * Получить значение выполненного метода от объекта
+     * Освободить значения итерируемого тега (копию списка и значения его элементов), вызывается когда таблица
+     * по этому тегу отрисована
+     *
+     * @param rootKey итерируемый тег
+     */
+    public void release(String rootKey) {
+        iterables.remove(rootKey);
+    }
+
+    /**
+     * Очистить кеш значений тегов
+     */
+    public void clear() {
+        iterables.clear();
+        intermediates.clear();
+        retainedSources.clear();
+        renderSources.clear();
+        datacache.clear();
+    }
+
+    /**
+     * Получить количество значений в кеше, включая значения элементов итерируемых тегов
      *
-     * @param data объект для получения значения
-     * @param cast метод, вызовя который можно будет получить значение
-     * @return значение выполненного метода
+     * @return количество значений
      */
-    private @Nullable Object getMethodResultOfObject(Object data, @NotNull Method cast) {
-        if (data == null) {
-            return null;
+    public int getCacheSize() {
+        var result = datacache.size();
+
+        for(var iterable: iterables.values()) {
+            result += iterable.size();
         }
 
-        try {
-            var access = cast.canAccess(data);
+        return result;
+    }
 
-            if(!access) {
-                cast.setAccessible(true);
+    private static @NotNull Map<String, Object> createDatacache(int capacity) {
+        if(capacity <= 0) {
+            return new ConcurrentHashMap<>();
+        }
+
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > capacity;
             }
+        });
+    }
 
-            var result = cast.invoke(data);
+    @Contract("null -> !null")
+    private static Object mask(Object value) {
+        return value == null ? NULL : value;
+    }
 
-            cast.setAccessible(access);
+    private static Object unmask(Object value) {
+        return value == NULL ? null : value;
+    }
 
-            return result;
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            return null;
-        } catch (Exception e) {
-            throw new RuntimeException("Error when call " + cast.getName());
+    /**
+     * Включить профилирование получения значений тегов и данных поставщика данных
+     *
+     * @return профилировщик, из которого можно получить отчет
+     */
+    public ProcessorProfiler enableProfiling() {
+        if(profiler == null) {
+            profiler = new ProcessorProfiler();
         }
+
+        dataProvider.setProfiler(profiler);
+
+        return profiler;
+    }
+
+    /**
+     * Выключить профилирование
+     */
+    public void disableProfiling() {
+        profiler = null;
+        dataProvider.setProfiler(null);
     }
 
     /**
@@ -161,38 +287,22 @@ public class ProcessorArgumentResolver {
      *
      * @param field название получаемого значения
      * @param data данные
-     * @param found объект поля или функции
+     * @param found подготовленный доступ к полю или функции
+     * @param intermediates промежуточные объекты путей, полученные от data
      * @return значение результата выполнения функции или значение поля
      * @throws IllegalAccessException в случае ошибки
+     * @throws InvocationTargetException если поле или функция выбросили исключение
      */
-    private Object getDataOfAccessible(String field, Object data, AccessibleObject found) throws IllegalAccessException {
-        if(found instanceof Field) {
-            var cast = (Field) found;
-
-            if(!Modifier.isStatic(cast.getModifiers())) {
-                var result = getPropertyOfObject(data, cast);
-
-                datacache.put(field, result);
-
-                return result;
-            } else {
+    private Object getDataOfAccessible(String field, Object data, BindAccessor found, Map<String, Object> intermediates) throws IllegalAccessException, InvocationTargetException {
+        if(found.isStaticAccessor()) {
+            if(found.isFieldAccessor()) {
                 throw new IllegalAccessException("Field '" + field + "' is static and cannot be computed.");
-            }
-        } else if(found instanceof Method) {
-            var cast = (Method) found;
-
-            if(!Modifier.isStatic(cast.getModifiers())) {
-                var result = getMethodResultOfObject(data, cast);
-
-                datacache.put(field, result);
-
-                return result;
             } else {
                 throw new IllegalAccessException("Field '" + field + "' is static and cannot be called.");
             }
         }
 
-        throw new IllegalAccessException("Cannot find provided type for field '" + field + "'");
+        return found.getOwner() != null ? found.get(data, intermediates) : found.get(data);
     }
 
     /**
@@ -204,45 +314,158 @@ public class ProcessorArgumentResolver {
      * @return знание поля subKey объекта
      */
     public Object getIndexedValueOf(String rootKey, Integer index, String subKey) throws InvocationTargetException, IllegalAccessException {
-        //
-        // Значение индекса списка (т.к. значение по индексу можно получить только из списка)
-        //
-        var listKey = rootKey + "#list";
-        //
-        // Значение кеша (если к свойству надо будет получить доступ ещё раз в ближайшее время)
-        //
-        var cacheKey = listKey + "#" + index + "#" + subKey;
+        return getIndexedValueOf(ItemPath.of(rootKey, index), subKey);
+    }
+
+    /**
+     * Получить под значение элемента итерируемого тега, в том числе вложенного
+     *
+     * @param item путь до элемента
+     * @param subKey название поля элемента
+     * @return знание поля subKey элемента
+     */
+    public Object getIndexedValueOf(ItemPath item, String subKey) throws InvocationTargetException, IllegalAccessException {
+        var profiler = this.profiler;
+
+        if(profiler == null) {
+            return getIndexedValueOfImpl(item, subKey);
+        }
+
+        var start = System.nanoTime();
+
+        try {
+            return getIndexedValueOfImpl(item, subKey);
+        } finally {
+            profiler.recordTag(getSubPropertyIndex(item.getSubspace(), subKey), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Получить количество элементов вложенного итерируемого тега элемента. Коллекция получается при первом обращении
+     * для этого элемента, а не для всех элементов внешней коллекции сразу.
+     *
+     * @param item путь до элемента
+     * @param tag итерируемый тег подпространства элемента
+     * @return количество элементов, 0 если значение не коллекция, или -1 если тег не итерируемый
+     */
+    public int getIndexedSizeOf(@NotNull ItemPath item, String tag) throws InvocationTargetException, IllegalAccessException {
+        if(!typeProvider.isCollection(getSubPropertyIndex(item.getSubspace(), tag))) {
+            return -1;
+        }
+
+        var list = getIterableCache(item, tag).list;
+
+        return list != null ? list.size() : 0;
+    }
+
+    /**
+     * Получить под значение элемента итерируемого тега
+     *
+     * @param item путь до элемента
+     * @param subKey название поля элемента
+     * @return знание поля subKey элемента
+     */
+    private Object getIndexedValueOfImpl(ItemPath item, String subKey) throws InvocationTargetException, IllegalAccessException {
+        var element = getItemCache(item);
 
         //
         // Возвращаю значение из кеша если есть
         //
-        if(datacache.containsKey(cacheKey)) {
-            return datacache.get(cacheKey);
+        var cached = element.values.get(subKey);
+
+        if(cached != null) {
+            metrics.count(ProcessorCounter.CACHE_HITS, 1);
+            return unmask(cached);
         }
 
-        var root = resolve(rootKey);
+        metrics.count(ProcessorCounter.CACHE_MISSES, 1);
 
-        //
-        // Нельзя получить значение по индексу от null)
-        //
-        if(root == null) {
-            throw new IllegalAccessException("Cannot find provided type for field '" + cacheKey + "'");
+        var found = this.typeProvider.getAccessor(getSubPropertyIndex(item.getSubspace(), subKey));
+
+        if(found == null) {
+            throw new IllegalAccessException("Cannot find provided type for field '" + item + "." + subKey + "'");
         }
 
-        if(root instanceof Collection<?>) {
-            if(!datacache.containsKey(listKey)) {
-                datacache.put(listKey, new ArrayList<>((Collection<?>) root));
-            }
+        var result = getDataOfAccessible(item + "." + subKey, element.value, found, element.intermediates);
+
+        element.values.put(subKey, mask(result));
+
+        return result;
+    }
+
+    /**
+     * Получить кеш элемента итерируемого тега
+     *
+     * @param item путь до элемента
+     * @return кеш элемента
+     * @throws IllegalAccessException если коллекции нет, или в ней нет элемента с таким индексом
+     */
+    private @NotNull ItemCache getItemCache(@NotNull ItemPath item) throws InvocationTargetException, IllegalAccessException {
+        var iterable = getIterableCache(item.getParent(), item.getTag());
+        var list = iterable.list;
+        var index = item.getIndex();
+
+        if(list == null || index < 0 || index >= list.size()) {
+            throw new IllegalAccessException("Cannot find provided type for field '" + item + "'");
+        }
+
+        var result = iterable.items.get(index);
+
+        if(result == null) {
+            result = iterable.items.computeIfAbsent(index, key -> new ItemCache(list.get(key)));
         }
 
-        var found = this.typeProvider.getBind(getSubPropertyIndex(rootKey, subKey));
-        var list = (List<?>) datacache.get(listKey);
+        return result;
+    }
+
+    /**
+     * Получить кеш итерируемого тега. Значения элементов итерируемого тега хранятся отдельно, чтобы их можно было
+     * освободить по завершении таблицы, а кеши вложенных итерируемых тегов хранятся в кеше элемента внешнего.
+     *
+     * @param parent элемент, которому принадлежит итерируемый тег, или null для основного подпространства
+     * @param tag итерируемый тег
+     * @return кеш итерируемого тега, копия коллекции получена
+     */
+    private @NotNull IterableCache getIterableCache(@Nullable ItemPath parent, String tag) throws InvocationTargetException, IllegalAccessException {
+        var owner = parent != null ? getItemCache(parent) : null;
+        var iterable = owner != null ? owner.nested.computeIfAbsent(tag, e -> new IterableCache()) : iterables.computeIfAbsent(tag, e -> new IterableCache());
 
-        if(list != null && list.size() > index && found != null) {
-            return getDataOfAccessible(cacheKey, list.get(index), found);
+        if(iterable.initialized) {
+            return iterable;
         }
 
-        throw new IllegalAccessException("Cannot find provided type for field '" + cacheKey + "'");
+        synchronized (iterable) {
+            if(!iterable.initialized) {
+                var value = (Object) null;
+
+                if(owner == null) {
+                    value = resolve(tag);
+
+                    //
+                    // Нельзя получить значение по индексу от null)
+                    //
+                    if(value == null) {
+                        throw new IllegalAccessException("Cannot find provided type for field '" + tag + "#list'");
+                    }
+                } else {
+                    var found = this.typeProvider.getAccessor(getSubPropertyIndex(parent.getSubspace(), tag));
+
+                    if(found == null) {
+                        throw new IllegalAccessException("Cannot find provided type for field '" + parent + "." + tag + "'");
+                    }
+
+                    value = getDataOfAccessible(parent + "." + tag, owner.value, found, owner.intermediates);
+                }
+
+                if(value instanceof Collection<?>) {
+                    iterable.list = new ArrayList<>((Collection<?>) value);
+                }
+
+                iterable.initialized = true;
+            }
+        }
+
+        return iterable;
     }
 
     /**
@@ -253,20 +476,83 @@ public class ProcessorArgumentResolver {
      * @throws IllegalAccessException если не найдено
      */
     public Object resolve(String field) throws IllegalAccessException, InvocationTargetException {
-        if(datacache.containsKey(field)) {
-            return datacache.get(field);
+        var profiler = this.profiler;
+
+        if(profiler == null) {
+            return resolveImpl(field);
         }
 
-        var found = this.typeProvider.getBind(field);
+        var start = System.nanoTime();
+
+        try {
+            return resolveImpl(field);
+        } finally {
+            profiler.recordTag(field, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Получить значение поля по именной ссылке
+     *
+     * @param field название поля
+     * @return значение поля если найдено
+     * @throws IllegalAccessException если не найдено
+     */
+    private Object resolveImpl(String field) throws IllegalAccessException, InvocationTargetException {
         var clazz = this.typeProvider.getClassForBind(field);
+        var retained = retainedCapacity > 0 && clazz != null;
+        var source = retained ? getRenderSource(clazz) : null;
+        var cached = datacache.get(field);
+
+        if(cached != null) {
+            metrics.count(ProcessorCounter.CACHE_HITS, 1);
+            return unmask(cached);
+        }
+
+        metrics.count(ProcessorCounter.CACHE_MISSES, 1);
+
+        var found = this.typeProvider.getAccessor(field);
 
         if(found != null && clazz != null) {
-            return getDataOfAccessible(field, dataProvider.resolve(clazz), found);
+            var data = retained ? unmask(source) : dataProvider.resolve(clazz);
+            var intermediates = found.getOwner() != null ? this.intermediates.computeIfAbsent(clazz, e -> new ConcurrentHashMap<>()) : null;
+            var result = getDataOfAccessible(field, data, found, intermediates);
+
+            datacache.put(field, mask(result));
+
+            return result;
         }
 
         throw new IllegalAccessException("Cannot find provided type for field '" + field + "'");
     }
 
+    /**
+     * Получить объект данных класса для текущей обработки, когда значения сохраняются между обработками. Объект
+     * получается из поставщика данных один раз за обработку, если это не тот объект, из которого получены сохраненные
+     * значения, то сохраненные значения этого класса сбрасываются.
+     *
+     * @param clazz класс данных
+     * @return объект данных, null хранится как {@link ProcessorArgumentResolver#NULL}
+     */
+    private Object getRenderSource(Class<?> clazz) {
+        var current = renderSources.get(clazz);
+
+        if(current != null) {
+            return current;
+        }
+
+        var source = mask(dataProvider.resolve(clazz));
+        var previous = retainedSources.put(clazz, source);
+
+        if(previous != null && previous != source) {
+            datacache.keySet().removeIf(key -> typeProvider.getClassForBind(key) == clazz);
+        }
+
+        renderSources.put(clazz, source);
+
+        return source;
+    }
+
     /**
      * Получить индекс под свойства
      *
@@ -278,4 +564,47 @@ public class ProcessorArgumentResolver {
     public static @NotNull String getSubPropertyIndex(String rootKey, String subKey) {
         return rootKey + "#" + subKey;
     }
+
+    /**
+     * Копия списка итерируемого тега и кеши его элементов
+     */
+    private static final class IterableCache {
+        private final Map<Integer, ItemCache> items = new ConcurrentHashMap<>();
+        private volatile List<?> list;
+        private volatile boolean initialized;
+
+        private int size() {
+            var result = 0;
+
+            for(var item: items.values()) {
+                result += item.size();
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Элемент итерируемого тега, значения его полей и кеши его вложенных итерируемых тегов
+     */
+    private static final class ItemCache {
+        private final Object value;
+        private final Map<String, Object> values = new ConcurrentHashMap<>();
+        private final Map<String, IterableCache> nested = new ConcurrentHashMap<>();
+        private final Map<String, Object> intermediates = new ConcurrentHashMap<>();
+
+        private ItemCache(Object value) {
+            this.value = value;
+        }
+
+        private int size() {
+            var result = values.size();
+
+            for(var iterable: nested.values()) {
+                result += iterable.size();
+            }
+
+            return result;
+        }
+    }
 }
@@ -2,16 +2,89 @@ package io.github.asewhy;
 
 import io.github.asewhy.interfaces.DataResolver;
 import io.github.asewhy.json.JsonGenerator;
+import io.github.asewhy.support.ProcessorProfiler;
+import lombok.Getter;
+import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Modifier;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @SuppressWarnings({"unchecked", "UnusedReturnValue"})
 public class ProcessorDataProvider {
-    private final HashMap<Class<?>, DataResolver<?>> resolvers = new HashMap<>();
+    private volatile Map<Class<?>, DataResolver<?>> resolvers = new HashMap<>();
+    private volatile boolean frozen = false;
+
+    @Getter
+    private final ProcessorDataProvider parent;
+
+    /**
+     * Профилировщик получения данных, дочерние поставщики получают профилировщик родителя при создании
+     */
+    @Getter
+    @Setter
+    private volatile ProcessorProfiler profiler;
+
+    /**
+     * Поставщик данных
+     */
+    public ProcessorDataProvider() {
+        this(null);
+    }
+
+    /**
+     * Поставщик данных, который ищет данные сначала у себя, а потом у родителя. Данные родителя не копируются.
+     *
+     * @param parent родительский поставщик данных, должен быть заморожен (см. {@link ProcessorDataProvider#freeze()})
+     */
+    protected ProcessorDataProvider(ProcessorDataProvider parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Заморозить поставщик данных. После этого поставлять данные в него нельзя, а читать данные можно одновременно
+     * из любого количества потоков.
+     *
+     * @return текущий поставщик данных
+     */
+    public ProcessorDataProvider freeze() {
+        if(!frozen) {
+            synchronized (this) {
+                if(!frozen) {
+                    resolvers = Collections.unmodifiableMap(new HashMap<>(resolvers));
+                    frozen = true;
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Проверить, заморожен ли поставщик данных
+     *
+     * @return true если заморожен
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Создать дочерний поставщик данных. Дочерний поставщик может переопределить данные для нескольких классов,
+     * остальные данные он получает от текущего поставщика без копирования. Текущий поставщик при этом замораживается,
+     * поэтому один и тот же родитель можно безопасно использовать из дочерних поставщиков разных потоков.
+     * Профилировщик текущего поставщика (если есть) используется и дочерним.
+     *
+     * @return дочерний поставщик данных
+     */
+    public ProcessorDataProvider child() {
+        var result = new ProcessorDataProvider(freeze());
+
+        result.profiler = profiler;
+
+        return result;
+    }
 
     /**
      * Поставлять динамические данных
@@ -22,7 +95,7 @@ public class ProcessorDataProvider {
      * @return текущий поставщик данных
      */
     public <T> ProcessorDataProvider provide(Class<T> clazz, DataResolver<T> resolver) {
-        this.resolvers.put(clazz, resolver); return this;
+        requireNotFrozen(); this.resolvers.put(clazz, resolver); return this;
     }
 
     /**
@@ -34,7 +107,7 @@ public class ProcessorDataProvider {
      * @return текущий поставщик данных
      */
     public <T> ProcessorDataProvider provide(Class<T> clazz, Object object) {
-        this.resolvers.put(clazz, () -> object); return this;
+        requireNotFrozen(); this.resolvers.put(clazz, () -> object); return this;
     }
 
     /**
@@ -44,7 +117,46 @@ public class ProcessorDataProvider {
      * @return текущий поставщик данных
      */
     public ProcessorDataProvider provide(@NotNull ProcessorDataProvider provider) {
-        this.resolvers.putAll(provider.resolvers); return this;
+        requireNotFrozen(); this.resolvers.putAll(provider.getResolvers()); return this;
+    }
+
+    /**
+     * Получить все поставщики данных с учетом родительских (переопределенные в дочернем поставщике имеют приоритет)
+     *
+     * @return поставщики данных по классам
+     */
+    public Map<Class<?>, DataResolver<?>> getResolvers() {
+        var result = parent != null ? parent.getResolvers() : new LinkedHashMap<Class<?>, DataResolver<?>>();
+        result.putAll(resolvers);
+        return result;
+    }
+
+    /**
+     * Найти поставщика данных для класса, сначала в текущем поставщике, потом у родителей
+     *
+     * @param forClass класс
+     * @return поставщик данных, или null если не найден
+     */
+    private DataResolver<?> findResolver(Class<?> forClass) {
+        var current = this;
+
+        while (current != null) {
+            var resolver = current.resolvers.get(forClass);
+
+            if(resolver != null) {
+                return resolver;
+            }
+
+            current = current.parent;
+        }
+
+        return null;
+    }
+
+    private void requireNotFrozen() {
+        if(frozen) {
+            throw new IllegalStateException("Data provider is frozen, use child() to provide request specific data.");
+        }
     }
 
     /**
@@ -54,13 +166,25 @@ public class ProcessorDataProvider {
      * @return набор данных по значению класса
      */
     public <T> T resolve(Class<T> forClass) {
-        var resolver = resolvers.get(forClass);
+        var resolver = findResolver(forClass);
 
-        if(resolver != null) {
-            return (T) resolver.get();
-        } else {
+        if(resolver == null) {
             return null;
         }
+
+        var profiler = this.profiler;
+
+        if(profiler == null) {
+            return (T) resolver.get();
+        }
+
+        var start = System.nanoTime();
+
+        try {
+            return (T) resolver.get();
+        } finally {
+            profiler.recordResolver(forClass, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -69,7 +193,7 @@ public class ProcessorDataProvider {
     protected String getDebugDumpData() {
         var gen = JsonGenerator.common().writeStartObject();
 
-        for(var current: resolvers.entrySet()) {
+        for(var current: getResolvers().entrySet()) {
             var target = current.getKey();
             var superclass = target.getSuperclass();
             var interfaces = target.getInterfaces();
@@ -1,13 +1,16 @@
 package io.github.asewhy;
 
 import io.github.asewhy.interfaces.TypeProvider;
+import io.github.asewhy.support.BindAccessor;
 import io.github.asewhy.support.DescriptionEntry;
 import io.github.asewhy.support.SubspaceEntry;
+import io.github.asewhy.support.TagCatalog;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.AccessibleObject;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @SuppressWarnings({"UnusedReturnValue", "unused"})
@@ -17,6 +20,9 @@ public class ProcessorTypeProvider implements TypeProvider {
     private final Map<String, Class<?>> classes = new HashMap<>();
     private final Map<String, Class<?>> resultClasses = new HashMap<>();
     private final Map<String, AccessibleObject> binds = new HashMap<>();
+    private final Map<String, List<AccessibleObject>> paths = new HashMap<>();
+    private final Map<String, BindAccessor> accessors = new ConcurrentHashMap<>();
+    private volatile TagCatalog catalog;
     private final Map<String, List<String>> subspaces = new HashMap<>();
     private final Map<String, Map<String, DescriptionEntry>> descriptions = new HashMap<>();
 
@@ -31,12 +37,52 @@ public class ProcessorTypeProvider implements TypeProvider {
         return new ArgumentResolverDataBinder<>(target, this, null);
     }
 
+    /**
+     * Биндинг тегов на ключи карты (или дерева json), поставляемой под классом source
+     *
+     * @param source класс, под которым карта поставляется поставщику данных (например {@link Map})
+     * @return конструктор биндингов по ключам
+     */
+    public KeyDataBinder<ProcessorTypeProvider> provideKeys(Class<?> source) {
+        return new KeyDataBinder<>(source, this, this);
+    }
+
+    /**
+     * Бинды по пути поддерживаются, доступ к ним собирается в цепочку (см. {@link BindAccessor})
+     *
+     * @return true
+     */
+    @Override
+    public boolean supportsPaths() {
+        return true;
+    }
+
+    /**
+     * Перенести данные из внешнего источника
+     * @param classes список соответствий тегов и классов
+     * @param resultClasses список соответствий полей (или методов) и их типов (или типов их возвращаемых значений)
+     * @param subspaces список соответсвия подпространств и набора тегов (для разных подпространств разный набор тегов)
+     * @param binds список соответствий полей и биндингов
+     * @param descriptions список описаний для каждого отдельного бинда
+     */
+    @Override
+    public void provide(
+        @NotNull Map<String, Class<?>> classes,
+        @NotNull Map<String, Class<?>> resultClasses,
+        @NotNull Map<String, List<String>> subspaces,
+        @NotNull Map<String, AccessibleObject> binds,
+        @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
+    ) {
+        provide(classes, resultClasses, subspaces, binds, Map.of(), descriptions);
+    }
+
     /**
      * Перенести данные из внешнего источника
      * @param classes список соответствий тегов и классов
      * @param resultClasses список соответствий полей (или методов) и их типов (или типов их возвращаемых значений)
      * @param subspaces список соответсвия подпространств и набора тегов (для разных подпространств разный набор тегов)
      * @param binds список соответствий полей и биндингов
+     * @param paths список соответствий биндов по пути и членов пути до поля (или метода) бинда
      * @param descriptions список описаний для каждого отдельного бинда
      */
     @Override
@@ -45,14 +91,19 @@ public class ProcessorTypeProvider implements TypeProvider {
         @NotNull Map<String, Class<?>> resultClasses,
         @NotNull Map<String, List<String>> subspaces,
         @NotNull Map<String, AccessibleObject> binds,
+        @NotNull Map<String, List<AccessibleObject>> paths,
         @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
     ) {
         this.classes.putAll(classes);
         this.binds.putAll(binds);
+        this.paths.keySet().removeAll(binds.keySet());
+        this.paths.putAll(paths);
+        this.accessors.keySet().removeAll(binds.keySet());
         this.resultClasses.putAll(resultClasses);
 
         //
-        // Добавляем описания
+        // Добавляем описания. Карты копируются, чтобы изменения биндера после build() (например desc()) не меняли
+        // описания в обход каталога
         //
         for(var subspace: descriptions.entrySet()) {
             var key = subspace.getKey();
@@ -61,7 +112,7 @@ public class ProcessorTypeProvider implements TypeProvider {
             if(this.subspaces.containsKey(key)) {
                 this.descriptions.get(key).putAll(description);
             } else {
-                this.descriptions.put(key, description);
+                this.descriptions.put(key, new HashMap<>(description));
             }
         }
 
@@ -75,11 +126,39 @@ public class ProcessorTypeProvider implements TypeProvider {
             if(this.subspaces.containsKey(key)) {
                 this.subspaces.get(key).addAll(tags);
             } else {
-                this.subspaces.put(key, tags);
+                this.subspaces.put(key, new ArrayList<>(tags));
             }
 
             this.subspaces.get(key).sort((a, b) -> b.length() - a.length());
         }
+
+        //
+        // Набор тегов изменился, каталог будет построен заново при следующем обращении
+        //
+        this.catalog = null;
+    }
+
+    /**
+     * Перенести бинды с готовым доступом к значению (например по ключу карты, см. {@link KeyDataBinder})
+     *
+     * @param classes список соответствий тегов и классов источников
+     * @param resultClasses список соответствий тегов и типов значений
+     * @param subspaces список соответсвия подпространств и набора тегов
+     * @param accessors список соответствий тегов и доступов к значению
+     * @param descriptions список описаний для каждого отдельного бинда
+     */
+    public void provideAccessors(
+        @NotNull Map<String, Class<?>> classes,
+        @NotNull Map<String, Class<?>> resultClasses,
+        @NotNull Map<String, List<String>> subspaces,
+        @NotNull Map<String, BindAccessor> accessors,
+        @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
+    ) {
+        provide(classes, resultClasses, subspaces, Map.of(), Map.of(), descriptions);
+
+        this.binds.keySet().removeAll(accessors.keySet());
+        this.paths.keySet().removeAll(accessors.keySet());
+        this.accessors.putAll(accessors);
     }
 
     /**
@@ -92,6 +171,42 @@ public class ProcessorTypeProvider implements TypeProvider {
         return this.binds.get(field);
     }
 
+    /**
+     * Получить подготовленный доступ к полю или методу по его биндингу. Доступ создается при первом обращении
+     * и переиспользуется, для бинда по пути (например address.city) доступ собирается в цепочку.
+     *
+     * @param field биндинг поля
+     * @return подготовленный доступ, или null если бинда нет
+     */
+    public BindAccessor getAccessor(String field) {
+        var accessor = this.accessors.get(field);
+
+        if(accessor == null) {
+            var bind = this.binds.get(field);
+
+            if(bind == null) {
+                return null;
+            }
+
+            accessor = BindAccessor.of(this.paths.getOrDefault(field, List.of()), bind);
+
+            if(accessor != null) {
+                this.accessors.put(field, accessor);
+            }
+        }
+
+        return accessor;
+    }
+
+    /**
+     * Заранее подготовить доступ ко всем полям и методам биндингов, чтобы первая обработка шаблона не тратила на это время
+     */
+    public void warmUp() {
+        for(var field: this.binds.keySet()) {
+            getAccessor(field);
+        }
+    }
+
     /**
      * Получить класс на который забинжено поле field
      *
@@ -184,6 +299,28 @@ public class ProcessorTypeProvider implements TypeProvider {
         return result;
     }
 
+    /**
+     * Получить каталог тегов. Каталог строится при первом обращении после изменения набора тегов, повторные
+     * обращения возвращают тот же каталог (вместе с готовым json и версией).
+     *
+     * @return каталог тегов
+     */
+    public TagCatalog getCatalog() {
+        var result = this.catalog;
+
+        if(result == null) {
+            synchronized (this) {
+                result = this.catalog;
+
+                if(result == null) {
+                    result = this.catalog = TagCatalog.of(getDescriptionMap());
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Получить описание для
      *
@@ -1,19 +1,27 @@
 package io.github.asewhy.base;
 
+import io.github.asewhy.events.*;
 import io.github.asewhy.exceptions.ProcessorException;
 import io.github.asewhy.interfaces.DocxProcessor;
+import io.github.asewhy.interfaces.ProcessorListener;
+import io.github.asewhy.support.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.model.table.TblFactory;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.wml.ContentAccessor;
 import org.docx4j.wml.R;
+import org.jetbrains.annotations.NotNull;
 
 import javax.xml.bind.JAXBElement;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @SuppressWarnings("unchecked")
 @Log4j2
@@ -22,6 +30,164 @@ import java.util.Set;
 public abstract class BaseDocxProcessor implements DocxProcessor {
     protected boolean loggable = false;
 
+    private final List<ProcessorListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Setter(AccessLevel.NONE)
+    private ProcessorMetrics metrics = new ProcessorMetrics(getClass(), false);
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int renderDepth = 0;
+
+    @Getter(AccessLevel.PROTECTED)
+    @Setter(AccessLevel.NONE)
+    private String templateName;
+
+    /**
+     * Прототип, копия которого сейчас обрабатывается, или null если шаблон получен не из прототипа
+     */
+    @Getter(AccessLevel.PROTECTED)
+    @Setter(AccessLevel.NONE)
+    private TemplatePrototype prototype;
+
+    /**
+     * Добавить слушателя, который будет получать метрики каждой обработки шаблона
+     *
+     * @param listener слушатель
+     */
+    public void addListener(@NotNull ProcessorListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Удалить слушателя метрик
+     *
+     * @param listener слушатель
+     */
+    public void removeListener(ProcessorListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Начать обработку шаблона. Вложенные вызовы (например загрузка из потока и последующая обработка шаблона)
+     * используют одни и те же метрики.
+     *
+     * @return метрики текущей обработки
+     */
+    protected ProcessorMetrics beginRender() {
+        if(renderDepth++ == 0) {
+            metrics = createMetrics();
+            onRenderStart(metrics);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Закончить обработку шаблона, если это самый внешний вызов, то слушатели получат метрики обработки
+     *
+     * @param error ошибка обработки, или null если обработка прошла успешно
+     */
+    protected void endRender(Throwable error) {
+        if(--renderDepth == 0) {
+            var current = metrics;
+
+            current.setError(error);
+
+            onRenderEnd(current);
+
+            notifyListeners(current);
+        }
+    }
+
+    /**
+     * Создать метрики обработки. Обработки, которые выполняются независимо от текущей обработки обработчика
+     * (например отрисовка по спросу подписчика), используют собственные метрики, а не {@link #beginRender()}.
+     *
+     * @return новые метрики
+     */
+    protected ProcessorMetrics createMetrics() {
+        return new ProcessorMetrics(getClass(), !listeners.isEmpty());
+    }
+
+    /**
+     * Передать метрики завершенной обработки слушателям
+     *
+     * @param metrics метрики обработки
+     */
+    protected void notifyListeners(@NotNull ProcessorMetrics metrics) {
+        if(metrics.isEnabled()) {
+            for(var listener: listeners) {
+                listener.onProcessed(metrics);
+            }
+        }
+    }
+
+    /**
+     * Получить идентификатор шаблона для событий JFR. Если у пакета задано имя, то используется оно,
+     * иначе идентификатор экземпляра пакета.
+     *
+     * @param template шаблон
+     * @return идентификатор шаблона
+     */
+    protected static String getTemplateName(@NotNull WordprocessingMLPackage template) {
+        var name = template.name();
+
+        if(name != null) {
+            return name;
+        }
+
+        return template.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(template));
+    }
+
+    /**
+     * Начать событие JFR для текущего шаблона
+     *
+     * @param event событие
+     * @param <E> тип события
+     * @return переданное событие
+     */
+    protected <E extends TemplateEvent> E beginEvent(@NotNull E event) {
+        return beginEvent(event, templateName);
+    }
+
+    /**
+     * Начать событие JFR для шаблона с заданным идентификатором. Используется путями обработки, которые не загружают
+     * пакет docx4j (например отрисовка скомпилированного шаблона), поэтому идентификатор текущего шаблона не задан.
+     *
+     * @param event событие
+     * @param template идентификатор шаблона
+     * @param <E> тип события
+     * @return переданное событие
+     */
+    protected <E extends TemplateEvent> E beginEvent(@NotNull E event, String template) {
+        if(event.isEnabled()) {
+            event.template = template;
+            event.processor = getClass();
+            event.begin();
+        }
+
+        return event;
+    }
+
+    /**
+     * Вызывается в начале самой внешней обработки шаблона
+     *
+     * @param metrics метрики текущей обработки
+     */
+    protected void onRenderStart(ProcessorMetrics metrics) {
+
+    }
+
+    /**
+     * Вызывается по завершении самой внешней обработки шаблона
+     *
+     * @param metrics метрики текущей обработки
+     */
+    protected void onRenderEnd(ProcessorMetrics metrics) {
+
+    }
+
     /**
      * Получить все узлы нужного типа элемента в строке
      *
@@ -32,7 +198,9 @@ public abstract class BaseDocxProcessor implements DocxProcessor {
      */
     protected <T> List<T> getAllElementFromObject(Object obj, Class<T> toSearch) {
         var stack = new ArrayList<T>();
+        var start = metrics.start();
         getAllElementFromObject(stack, obj, toSearch, Set.of());
+        metrics.stop(ProcessorPhase.TRAVERSAL, start);
         return stack;
     }
 
@@ -46,7 +214,9 @@ public abstract class BaseDocxProcessor implements DocxProcessor {
      */
     protected <T> List<T> getAllElementFromObject(Object obj, Class<T> toSearch, Set<Object> excludes) {
         var stack = new ArrayList<T>();
+        var start = metrics.start();
         getAllElementFromObject(stack, obj, toSearch, excludes);
+        metrics.stop(ProcessorPhase.TRAVERSAL, start);
         return stack;
     }
 
@@ -82,27 +252,260 @@ public abstract class BaseDocxProcessor implements DocxProcessor {
         }
     }
 
+    /**
+     * Подготовить обработчик к работе: инициализировать контекст JAXB docx4j и доступ к биндингам. Первая обработка
+     * шаблона после этого не будет тратить на это время.
+     *
+     * @throws ProcessorException если произошла ошибка
+     */
+    public void warmUp() throws ProcessorException {
+        warmUp(0);
+    }
+
+    /**
+     * Подготовить обработчик к работе: инициализировать контекст JAXB docx4j и доступ к биндингам, после чего
+     * несколько раз загрузить, обработать и сохранить синтетический шаблон (без тегов), чтобы прогреть загрузку,
+     * обход документа, поиск тегов и сохранение. Метрики и события прогрева слушателям не передаются.
+     *
+     * @param iterations количество обработок синтетического шаблона
+     * @throws ProcessorException если произошла ошибка
+     */
+    public void warmUp(int iterations) throws ProcessorException {
+        long start = System.currentTimeMillis();
+        var current = this.metrics;
+
+        try {
+            Context.getWmlObjectFactory();
+
+            onWarmUp();
+
+            if(iterations > 0) {
+                var buffer = new ByteArrayOutputStream();
+
+                createWarmUpTemplate().save(buffer);
+
+                var data = buffer.toByteArray();
+
+                this.metrics = new ProcessorMetrics(getClass(), false);
+
+                for(var i = 0; i < iterations; i++) {
+                    var template = WordprocessingMLPackage.load(new ByteArrayInputStream(data));
+
+                    optimize(template);
+                    doValidate(template);
+                    doProcessLoggable(template);
+
+                    template.save(OutputStream.nullOutputStream());
+                }
+            }
+        } catch (Docx4JException e) {
+            throw new ProcessorException(e);
+        } finally {
+            this.metrics = current;
+        }
+
+        if(loggable) {
+            log.info("Processor warm up complete. Took " + (System.currentTimeMillis() - start) + "ms.");
+        }
+    }
+
+    /**
+     * Вызывается при прогреве обработчика, тут можно заранее подготовить то, что иначе готовится при первой обработке
+     */
+    protected void onWarmUp() {
+
+    }
+
+    /**
+     * Создать синтетический шаблон для прогрева, текст состоит только из цифр, поэтому теги в нем не находятся
+     *
+     * @return синтетический шаблон
+     * @throws Docx4JException если шаблон не удалось создать
+     */
+    private static @NotNull WordprocessingMLPackage createWarmUpTemplate() throws Docx4JException {
+        var template = WordprocessingMLPackage.createPackage();
+        var document = template.getMainDocumentPart();
+        var table = TblFactory.createTable(4, 3, 2000);
+
+        for(var i = 0; i < 8; i++) {
+            document.addParagraphOfText(i + " 0123456789 " + i);
+        }
+
+        for(var row: table.getContent()) {
+            for(var cell: ((ContentAccessor) XmlUtils.unwrap(row)).getContent()) {
+                var content = ((ContentAccessor) XmlUtils.unwrap(cell)).getContent();
+
+                content.clear();
+                content.add(document.createParagraphOfText("0123456789"));
+            }
+        }
+
+        document.getContent().add(table);
+        template.setName("warm-up");
+
+        return template;
+    }
+
     public void optimize(WordprocessingMLPackage template) {
+        var start = metrics.start();
         var rowRuns = getAllElementFromObject(template.getMainDocumentPart(), R.class);
+        metrics.stop(ProcessorPhase.OPTIMIZE, start);
     }
 
     @Override
     public void doProcess(WordprocessingMLPackage template) throws ProcessorException {
         long start = System.currentTimeMillis();
+        var error = (Throwable) null;
 
-        doProcessLoggable(template);
+        beginRender();
+
+        this.templateName = getTemplateName(template);
+
+        var event = beginEvent(new TemplateRenderEvent());
+
+        try {
+            doProcessLoggable(template);
+        } catch (ProcessorException | RuntimeException e) {
+            error = e; throw e;
+        } finally {
+            event.commit();
+            endRender(error);
+        }
 
         if(loggable) {
             log.info("Template processing complete. Took " + (System.currentTimeMillis() - start) + "ms.");
         }
     }
 
+    @Override
+    public void doProcess(File input, OutputStream output) throws ProcessorException {
+        try (var stream = new FileInputStream(input)) {
+            doProcess(stream, output, input.getName());
+        } catch (IOException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    @Override
+    public void doProcess(InputStream input, OutputStream output) throws ProcessorException {
+        doProcess(input, output, null);
+    }
+
+    /**
+     * Начать обработку шаблона
+     *
+     * @param input поток входящего документа
+     * @param output поток выхода документа
+     * @param name идентификатор шаблона (для событий JFR), может быть null
+     * @throws ProcessorException если в процессе обработки документа произошли ошибки
+     */
+    protected void doProcess(InputStream input, OutputStream output, String name) throws ProcessorException {
+        var error = (Throwable) null;
+        var metrics = beginRender();
+
+        try {
+            var loadEvent = beginEvent(new TemplateLoadEvent());
+            var counted = metrics.isEnabled() || loadEvent.isEnabled();
+            var countedInput = counted ? new CountingInputStream(input) : null;
+
+            var start = metrics.start();
+            var template = WordprocessingMLPackage.load(countedInput != null ? countedInput : input);
+            metrics.stop(ProcessorPhase.LOAD, start);
+
+            if(name != null && template.name() == null) {
+                template.setName(name);
+            }
+
+            if(countedInput != null) {
+                metrics.count(ProcessorCounter.BYTES_IN, countedInput.getCount());
+                loadEvent.template = getTemplateName(template);
+                loadEvent.bytes = countedInput.getCount();
+            }
+
+            loadEvent.commit();
+
+            doProcess(template);
+            doSave(template, output, metrics);
+        } catch (Docx4JException e) {
+            error = e; throw new ProcessorException(e);
+        } catch (ProcessorException | RuntimeException e) {
+            error = e; throw e;
+        } finally {
+            endRender(error);
+        }
+    }
+
+    /**
+     * Начать обработку копии шаблона, полученной из прототипа. Шаблон не загружается из потока заново,
+     * копируется только основная часть документа.
+     *
+     * @param prototype прототип шаблона
+     * @param output поток выхода документа
+     * @throws ProcessorException если в процессе обработки документа произошли ошибки
+     */
+    public void doProcess(@NotNull TemplatePrototype prototype, OutputStream output) throws ProcessorException {
+        var error = (Throwable) null;
+        var metrics = beginRender();
+
+        try {
+            var start = metrics.start();
+            var template = prototype.newInstance();
+            metrics.stop(ProcessorPhase.TEMPLATE_COPY, start);
+            var previous = this.prototype;
+
+            try {
+                this.prototype = prototype;
+                doProcess(template);
+            } finally {
+                this.prototype = previous;
+            }
+
+            doSave(template, output, metrics);
+        } catch (Docx4JException e) {
+            error = e; throw new ProcessorException(e);
+        } catch (ProcessorException | RuntimeException e) {
+            error = e; throw e;
+        } finally {
+            endRender(error);
+        }
+    }
+
+    /**
+     * Сохранить обработанный шаблон в поток
+     *
+     * @param template обработанный шаблон
+     * @param output поток выхода документа
+     * @param metrics метрики текущей обработки
+     * @throws Docx4JException если шаблон не удалось сохранить
+     */
+    protected void doSave(@NotNull WordprocessingMLPackage template, OutputStream output, @NotNull ProcessorMetrics metrics) throws Docx4JException {
+        var saveEvent = beginEvent(new TemplateSaveEvent());
+        var countedOutput = metrics.isEnabled() || saveEvent.isEnabled() ? new CountingOutputStream(output) : null;
+
+        var start = metrics.start();
+        template.save(countedOutput != null ? countedOutput : output);
+        metrics.stop(ProcessorPhase.SAVE, start);
+
+        if(countedOutput != null) {
+            metrics.count(ProcessorCounter.BYTES_OUT, countedOutput.getCount());
+            saveEvent.bytes = countedOutput.getCount();
+        }
+
+        saveEvent.commit();
+    }
+
     @Override
     public Collection<String> doValidate(WordprocessingMLPackage template) throws ProcessorException {
         long start = System.currentTimeMillis();
 
+        this.templateName = getTemplateName(template);
+
+        var event = beginEvent(new TemplateCompileEvent());
         var result = doValidateLoggable(template);
 
+        event.tags = result.size();
+        event.commit();
+
         if(loggable) {
             log.info("Template processing complete. Took " + (System.currentTimeMillis() - start) + "ms.");
         }
@@ -2,21 +2,97 @@ package io.github.asewhy.base;
 
 import io.github.asewhy.ProcessorArgumentResolver;
 import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.events.TableExpansionEvent;
+import io.github.asewhy.events.TemplateCompileEvent;
+import io.github.asewhy.events.TemplateRenderEvent;
+import io.github.asewhy.events.TemplateSaveEvent;
 import io.github.asewhy.exceptions.ProcessorException;
-import io.github.asewhy.support.IterableBagData;
+import io.github.asewhy.raw.CompiledTemplate;
+import io.github.asewhy.raw.RawTemplateScanner;
+import io.github.asewhy.raw.TagSource;
+import io.github.asewhy.raw.TemplateCompiler;
+import io.github.asewhy.support.*;
+import io.github.asewhy.interfaces.ChunkProducer;
+import io.github.asewhy.interfaces.OutputCache;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
 import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
-import org.docx4j.wml.Tbl;
-import org.docx4j.wml.Text;
-import org.docx4j.wml.Tr;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.wml.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
+import javax.xml.bind.JAXBElement;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+@Log4j2
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
+    /**
+     * Кеш готовых документов, если не null, то повторная обработка того же шаблона с теми же значениями тегов
+     * не загружает и не сохраняет шаблон, а пишет ранее сохраненный документ
+     */
+    @Getter
+    @Setter
+    private OutputCache outputCache;
+
+    /**
+     * Пул для параллельной обработки таблиц. Если не null и в документе больше одной таблицы, то каждая таблица
+     * (размножение строк и замена тегов) обрабатывается в отдельной задаче. Получение значений тегов при этом
+     * должно допускать одновременные обращения.
+     */
+    @Getter
+    @Setter
+    private ForkJoinPool tablePool;
+
+    /**
+     * Размер части строк итерируемой таблицы, которая генерируется одной задачей {@link BaseSequenceTagProcessor#tablePool}.
+     * Таблицы с меньшим количеством строк генерируются одной задачей.
+     */
+    @Getter
+    @Setter
+    private int rowChunkSize = 1024;
+
+    /**
+     * Синтаксис тегов в тексте шаблона, по умолчанию теги ищутся как есть ({@link TagSyntax#PLAIN})
+     */
+    @Getter
+    @Setter
+    private TagSyntax tagSyntax = TagSyntax.PLAIN;
+
+    /**
+     * Способ привязки тегов, по умолчанию теги ищутся в тексте документа ({@link TagBinding#TEXT})
+     */
+    @Getter
+    @Setter
+    private TagBinding tagBinding = TagBinding.TEXT;
+
+    /**
+     * Кеш готовых фрагментов, если не null, то абзацы и таблицы верхнего уровня шаблона из {@link TemplatePrototype},
+     * теги которых имеют те же значения, что и при прошлой обработке, берутся из кеша (см. {@link FragmentCache})
+     */
+    @Getter
+    @Setter
+    private FragmentCache fragmentCache;
+
     /**
      * Получить значение по тегу key
      *
@@ -35,6 +111,32 @@ public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
      */
     protected abstract String getTag(String key, Integer index, String subKey);
 
+    /**
+     * Получить значение тега элемента итерируемого тега, в том числе вложенного (см. {@link ItemPath}). Пути вложенных
+     * элементов появляются, только если {@link #getTableRowCount(ItemPath, String)} находит вложенные итерируемые
+     * теги, поэтому наследник, который их поддерживает, переопределяет оба метода. По умолчанию значение получается
+     * по {@link #getTag(String, Integer, String)}.
+     *
+     * @param item путь до элемента
+     * @param subKey подключ значения элемента
+     * @return значение тега
+     */
+    protected String getTag(@NotNull ItemPath item, String subKey) {
+        return getTag(item.getTag(), item.getIndex(), subKey);
+    }
+
+    /**
+     * Получить количество элементов вложенного итерируемого тега элемента. По умолчанию вложенные итерируемые теги
+     * не поддерживаются (см. {@link #getTag(ItemPath, String)}).
+     *
+     * @param item путь до элемента
+     * @param tag тег подпространства элемента
+     * @return количество элементов, или -1 если тег не итерируемый
+     */
+    protected Integer getTableRowCount(ItemPath item, String tag) {
+        return -1;
+    }
+
     /**
      * Получить набор тегов, которые присутствуют в маппере тегов
      *
@@ -58,6 +160,27 @@ public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
      */
     protected abstract Boolean isIterableTag(String key);
 
+    /**
+     * Проверить, истинно ли значение тега условия. По умолчанию ложными считаются пустое значение, "false" и "0".
+     *
+     * @param key тег условия
+     * @return true если блок {@code #key} должен остаться в документе
+     */
+    protected Boolean isConditionTrue(String key) {
+        var value = getTag(key);
+
+        return value != null && !value.isEmpty() && !value.equalsIgnoreCase("false") && !value.equals("0");
+    }
+
+    /**
+     * Вызывается, когда все строки итерируемого тега сгенерированы, после этого значения его элементов больше не нужны
+     *
+     * @param primaryTag итерируемый тег
+     */
+    protected void onTableRendered(String primaryTag) {
+
+    }
+
     /**
      * Проверить, является ли это строка итерируемой
      *
@@ -65,19 +188,15 @@ public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
      * @param supportTagNames поддерживаемые названия тегов
      * @return не null, если является
      */
-    private IterableBagData isIterableRowCheck(List<Text> nodes, List<String> supportTagNames) {
+    private IterableBagData isIterableRowCheck(List<Text> nodes, Collection<String> supportTagNames) {
         for (var node : nodes) {
-            var textContent = node.getValue();
-
-            for (var tag : supportTagNames) {
-                //
-                // Если текущий текстовый узел содержит тег
-                //
-                if (textContent.contains(tag)) {
-                    if(isIterableTag(tag)) {
-                        return new IterableBagData(0, tag);
-                    }
-                }
+            //
+            // Если текущий текстовый узел содержит итерируемый тег
+            //
+            var tag = tagSyntax.find(node.getValue(), supportTagNames, null, this::isIterableTag);
+
+            if(tag != null) {
+                return new IterableBagData(0, tag);
             }
         }
 
@@ -91,21 +210,17 @@ public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
      * @param supportTagNames поддерживаемые названия тегов
      * @return 0 или больше если является (количество необходимых повторений)
      */
-    private IterableBagData isIterableRow(List<Text> nodes, List<String> supportTagNames) {
-        for (var node : nodes) {
-            var textContent = node.getValue();
+    private IterableBagData isIterableRow(List<Text> nodes, Collection<String> supportTagNames) {
+        var count = new int[1];
 
-            for (var tag : supportTagNames) {
-                //
-                // Если текущий текстовый узел содержит тег
-                //
-                if (textContent.contains(tag)) {
-                    var count = getTableRowCount(tag);
+        for (var node : nodes) {
+            //
+            // Если текущий текстовый узел содержит тег, по которому находится массив
+            //
+            var tag = tagSyntax.find(node.getValue(), supportTagNames, null, current -> (count[0] = getTableRowCount(current)) > -1);
 
-                    if(count > -1) {
-                        return new IterableBagData(count, tag);
-                    }
-                }
+            if(tag != null) {
+                return new IterableBagData(count[0], tag);
             }
         }
 
@@ -119,22 +234,8 @@ public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
      * @param supportTagNames поддерживаемые теги
      * @throws ProcessorException если произошла ошибка
      */
-    private void replaceTags(List<Text> textNodes, List<String> supportTagNames) throws ProcessorException {
-        for(var node: textNodes) {
-            var textContent = node.getValue();
-
-            try {
-                for(var tag: supportTagNames) {
-                    if(textContent.contains(tag)) {
-                        textContent = textContent.replaceAll(tag, getTag(tag));
-                    }
-                }
-            } catch (RuntimeException e) {
-                throw new ProcessorException(e);
-            }
-
-            node.setValue(textContent);
-        }
+    private void replaceTags(List<Text> textNodes, Collection<String> supportTagNames) throws ProcessorException {
+        replaceTags(textNodes, supportTagNames, null, this::getTag);
     }
 
     /**
@@ -142,112 +243,1567 @@ public abstract class BaseSequenceTagProcessor extends BaseDocxProcessor {
      *
      * @param textNodes список текстовых узлов для замены
      * @param supportTagNames поддерживаемые теги
+     * @param scope итерируемый тег, или null для основного подпространства
+     * @param values функция получения значения тега
      * @throws ProcessorException если произошла ошибка
      */
-    private void replaceTags(List<Text> textNodes, List<String> supportTagNames, Integer dataIndex, String primaryTag) throws ProcessorException {
-        for(var node: textNodes) {
-            var textContent = node.getValue();
+    private void replaceTags(List<Text> textNodes, Collection<String> supportTagNames, String scope, Function<String, String> values) throws ProcessorException {
+        var metrics = getMetrics();
+        var start = metrics.start();
+        var resolution = new long[1];
+        var replaced = new long[1];
+        var tagSyntax = this.tagSyntax;
 
+        for(var node: textNodes) {
             try {
-                for(var tag: supportTagNames) {
-                    if(textContent.contains(tag)) {
-                        textContent = textContent.replaceAll(tag, getTag(primaryTag, dataIndex, tag));
-                    }
-                }
+                node.setValue(tagSyntax.replace(node.getValue(), supportTagNames, scope, tag -> {
+                    var resolveStart = metrics.start();
+                    var value = values.apply(tag);
+                    resolution[0] += metrics.stop(ProcessorPhase.RESOLUTION, resolveStart);
+                    replaced[0]++;
+                    return value;
+                }));
             } catch (RuntimeException e) {
                 throw new ProcessorException(e);
             }
+        }
+
+        metrics.add(ProcessorPhase.MATCHING, metrics.elapsed(start) - resolution[0]);
+        metrics.count(ProcessorCounter.TAGS_REPLACED, replaced[0]);
+    }
+
+    /**
+     * Удалить условные блоки, условие которых не выполнено, а у остальных блоков удалить маркеры. Маркер - это абзац
+     * или строка таблицы, текст которой целиком состоит из маркера (см. {@link TagSyntax#marker(String)}), блок
+     * состоит из соседних узлов между открывающим и закрывающим маркерами. Выполняется до поиска тегов и
+     * генерации строк, поэтому удаленное содержимое не обрабатывается.
+     * <p>
+     * Маркеры {@code #tag ... /tag} итерируемого тега - это повторяющиеся блоки, они не удаляются и разворачиваются
+     * позже, но участвуют в проверке вложенности. {@code ^tag ... /tag} итерируемого тега - обычный условный блок,
+     * который остается, если список пуст.
+     *
+     * @param root узел документа
+     * @param supportTagNames теги основного подпространства
+     * @throws ProcessorException если блок не закрыт, закрывающий маркер не соответствует последнему открытому блоку,
+     * или значение тега условия не удалось получить
+     */
+    private void pruneConditionalBlocks(ContentAccessor root, Collection<String> supportTagNames) throws ProcessorException {
+        var content = root.getContent();
+        var blocks = new ArrayDeque<ConditionalBlock>();
+
+        for(var i = 0; i < content.size(); i++) {
+            var marker = getMarker(content.get(i), supportTagNames);
+
+            if(marker == null) {
+                continue;
+            }
+
+            var tag = marker.substring(1);
+            var parent = blocks.peek();
+
+            if(marker.charAt(0) == '#' && isIterableTag(tag)) {
+                blocks.push(new ConditionalBlock(tag, i, parent == null || parent.keep, true));
+            } else if(marker.charAt(0) != '/') {
+                var keep = (parent == null || parent.keep) && isConditionTrueChecked(tag) != (marker.charAt(0) == '^');
+
+                blocks.push(new ConditionalBlock(tag, i, keep, false));
+            } else if(parent == null || !parent.tag.equals(tag)) {
+                throw new ProcessorException(
+                    "Closing marker '" + marker + "' does not match " + (parent == null ? "any open block." : "open block '" + parent.tag + "'.")
+                );
+            } else {
+                var block = blocks.pop();
+
+                if(block.repeating) {
+                    continue;
+                }
+
+                if(block.keep) {
+                    content.remove(i);
+                    content.remove(block.start);
+                    i -= 2;
+                } else {
+                    content.subList(block.start, i + 1).clear();
+                    i = block.start - 1;
+                    getMetrics().count(ProcessorCounter.BLOCKS_REMOVED, 1);
+                }
+            }
+        }
+
+        if(!blocks.isEmpty()) {
+            throw new ProcessorException((blocks.peek().repeating ? "Repeating" : "Conditional") + " block '" + blocks.peek().tag + "' is not closed.");
+        }
+
+        for(var current: content) {
+            if(current instanceof JAXBElement<?>) {
+                current = ((JAXBElement<?>) current).getValue();
+            }
+
+            if(current instanceof ContentAccessor && !(current instanceof P)) {
+                pruneConditionalBlocks((ContentAccessor) current, supportTagNames);
+            }
+        }
+    }
+
+    /**
+     * Получить маркер условного (или повторяющегося) блока, если узел - это абзац или строка таблицы, текст которой
+     * целиком состоит из маркера тега основного подпространства
+     *
+     * @param node узел
+     * @param supportTagNames теги основного подпространства
+     * @return маркер, или null
+     */
+    private @Nullable String getMarker(Object node, Collection<String> supportTagNames) {
+        if(node instanceof JAXBElement<?>) {
+            node = ((JAXBElement<?>) node).getValue();
+        }
+
+        if(!(node instanceof P) && !(node instanceof Tr)) {
+            return null;
+        }
+
+        var text = new StringBuilder();
+
+        for(var current: getAllElementFromObject(node, Text.class)) {
+            text.append(current.getValue());
+        }
+
+        var marker = tagSyntax.marker(text.toString());
+
+        if(marker == null || !supportTagNames.contains(marker.substring(1))) {
+            return null;
+        }
+
+        return marker;
+    }
+
+    private boolean isConditionTrueChecked(String tag) throws ProcessorException {
+        try {
+            return isConditionTrue(tag);
+        } catch (RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Открытый условный блок
+     */
+    @AllArgsConstructor
+    private static final class ConditionalBlock {
+        private final String tag;
+        private final int start;
+        private final boolean keep;
+        private final boolean repeating;
+    }
+
+    /**
+     * Размножить повторяющиеся блоки вне таблиц. Блок - это соседние абзацы (и другие узлы) между маркерами
+     * {@code #tag} и {@code /tag} итерируемого тега, блок повторяется по одному разу на каждый элемент коллекции
+     * так же, как итерируемая строка таблицы, и заполняется тегами подпространства.
+     *
+     * @param root узел документа
+     * @param supportTagNames теги основного подпространства
+     * @param generated сгенерированные узлы, в них теги основного подпространства уже не ищутся
+     * @throws ProcessorException если блок не закрыт, или произошла ошибка
+     */
+    private void expandRepeatingBlocks(ContentAccessor root, Collection<String> supportTagNames, Set<Object> generated) throws ProcessorException {
+        var content = root.getContent();
+
+        for(var i = 0; i < content.size(); i++) {
+            var marker = getMarker(content.get(i), supportTagNames);
+
+            if(marker == null || marker.charAt(0) != '#' || !isIterableTag(marker.substring(1))) {
+                continue;
+            }
+
+            var primaryTag = marker.substring(1);
+            var end = findBlockEnd(content, i, primaryTag, supportTagNames);
+
+            if(end < 0) {
+                throw new ProcessorException("Repeating block '" + primaryTag + "' is not closed.");
+            }
+
+            var event = beginEvent(new TableExpansionEvent());
+            var prototype = new ArrayList<>(content.subList(i + 1, end));
+            var count = getTableRowCountChecked(primaryTag);
+
+            content.subList(i, end + 1).clear();
+
+            var items = materialize(prototype, null, primaryTag, count);
+
+            content.addAll(i, items);
+
+            for(var item: items) {
+                generated.add(item instanceof JAXBElement<?> ? ((JAXBElement<?>) item).getValue() : item);
+            }
+
+            i += items.size() - 1;
+
+            getMetrics().count(ProcessorCounter.ROWS_GENERATED, count);
+            onTableRendered(primaryTag);
+
+            event.tag = primaryTag;
+            event.rows = count;
+            event.commit();
+        }
+
+        for(var current: content) {
+            if(current instanceof JAXBElement<?>) {
+                current = ((JAXBElement<?>) current).getValue();
+            }
+
+            if(current instanceof ContentAccessor && !(current instanceof P) && !(current instanceof Tbl) && !generated.contains(current)) {
+                expandRepeatingBlocks((ContentAccessor) current, supportTagNames, generated);
+            }
+        }
+    }
+
+    /**
+     * Найти закрывающий маркер блока, вложенные блоки того же тега пропускаются
+     *
+     * @param content список узлов
+     * @param start индекс открывающего маркера
+     * @param tag тег блока
+     * @param supportTagNames теги основного подпространства
+     * @return индекс закрывающего маркера, или -1 если блок не закрыт
+     */
+    private int findBlockEnd(@NotNull List<Object> content, int start, String tag, Collection<String> supportTagNames) {
+        var depth = 0;
+
+        for(var i = start + 1; i < content.size(); i++) {
+            var marker = getMarker(content.get(i), supportTagNames);
+
+            if(marker == null || !marker.substring(1).equals(tag)) {
+                continue;
+            }
 
-            node.setValue(textContent);
+            if(marker.charAt(0) != '/') {
+                depth++;
+            } else if(depth-- == 0) {
+                return i;
+            }
         }
+
+        return -1;
     }
 
     @Override
     public void doProcessLoggable(@NotNull WordprocessingMLPackage template) throws ProcessorException {
-        var tableNodes = getAllElementFromObject(template.getMainDocumentPart(), Tbl.class);
-        var textNodes = getAllElementFromObject(template.getMainDocumentPart(), Text.class, new HashSet<>(tableNodes));
-        var supportTagNames = getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE);
+        var fragmentCache = this.fragmentCache;
+        var prototype = getPrototype();
+        var fragments = fragmentCache != null && prototype != null && tagBinding == TagBinding.TEXT ? indexFragments(template.getMainDocumentPart()) : null;
+
+        pruneConditionalBlocks(template.getMainDocumentPart(), new HashSet<>(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE)));
+
+        if(tagBinding == TagBinding.CONTENT_CONTROL) {
+            processContentControls(template); return;
+        }
+
+        var supportTagNames = tagSyntax.prepare(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE));
+        var generated = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        expandRepeatingBlocks(template.getMainDocumentPart(), supportTagNames, generated);
+
+        if(fragments != null) {
+            applyFragments(template.getMainDocumentPart(), fragments, supportTagNames, generated, fragmentCache, prototype);
+        }
+
+        var tableNodes = getAllElementFromObject(template.getMainDocumentPart(), Tbl.class, generated);
+        var excludes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        excludes.addAll(tableNodes);
+        excludes.addAll(generated);
+
+        var textNodes = getAllElementFromObject(template.getMainDocumentPart(), Text.class, excludes);
+        var tablePool = this.tablePool;
 
         replaceTags(textNodes, supportTagNames);
 
+        if(tablePool == null || tableNodes.size() < 2) {
+            for(var table: tableNodes) {
+                processTable(table, supportTagNames);
+            }
+
+            return;
+        }
+
+        var tasks = new ArrayList<Callable<Void>>(tableNodes.size());
+
         for(var table: tableNodes) {
-            var nodes = table.getContent();
-            var rowNodes = getAllElementFromObject(table, Tr.class);
+            tasks.add(() -> { processTable(table, supportTagNames); return null; });
+        }
 
-            for(var row: rowNodes) {
-                var rowTextNodes = getAllElementFromObject(row, Text.class);
-                var rowIterablesData = isIterableRow(rowTextNodes, supportTagNames);
+        invokeAll(tablePool, tasks);
+    }
 
-                if(rowIterablesData != null) {
-                    var index = nodes.indexOf(row);
-                    var currentSubspace = getSupportTagNames(rowIterablesData.getIterablesPrimaryTag());
+    /**
+     * Запомнить индексы абзацев и таблиц верхнего уровня шаблона до изменения документа, индекс вместе
+     * с прототипом определяет фрагмент в {@link FragmentCache}. Таблицы тела документа хранятся в {@link JAXBElement},
+     * поэтому индекс запоминается по элементу содержимого, а тип проверяется у его значения.
+     *
+     * @param content основная часть документа
+     * @return индексы фрагментов
+     */
+    private @NotNull Map<Object, Integer> indexFragments(@NotNull ContentAccessor content) {
+        var result = new IdentityHashMap<Object, Integer>();
+        var nodes = content.getContent();
 
-                    nodes.remove(index);
+        for(var i = 0; i < nodes.size(); i++) {
+            var node = nodes.get(i);
+            var value = node instanceof JAXBElement<?> ? ((JAXBElement<?>) node).getValue() : node;
 
-                    for(var i = 0; i < rowIterablesData.getIterablesCount(); i++) {
-                        var newRow = XmlUtils.deepCopy(row);
-                        var newRowTextNodes = getAllElementFromObject(newRow, Text.class);
-                        replaceTags(newRowTextNodes, currentSubspace, i, rowIterablesData.getIterablesPrimaryTag());
-                        nodes.add(index++, newRow);
-                    }
-                } else {
-                    replaceTags(rowTextNodes, supportTagNames);
-                }
+            if(value instanceof P || value instanceof Tbl) {
+                result.put(node, i);
             }
         }
+
+        return result;
     }
 
-    @Override
-    public Collection<String> doValidate(@NotNull WordprocessingMLPackage template) {
-        var foundTags = new HashSet<String>();
-        var tableNodes = getAllElementFromObject(template.getMainDocumentPart(), Tbl.class);
-        var textNodes = getAllElementFromObject(template.getMainDocumentPart(), Text.class, new HashSet<>(tableNodes));
-        var supportTagNames = getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE);
+    /**
+     * Заменить фрагменты шаблона копиями готовых фрагментов из кеша. Фрагменты, которых нет в кеше, заполняются сразу,
+     * а в кеш помещается их копия, поэтому узлы кеша не принадлежат ни одному документу. Вставленные и заполненные
+     * фрагменты добавляются в generated, чтобы теги в них больше не искались.
+     *
+     * @param content основная часть документа
+     * @param fragments индексы фрагментов шаблона
+     * @param supportTagNames теги основного подпространства
+     * @param generated узлы, которые уже обработаны
+     * @param fragmentCache кеш готовых фрагментов
+     * @param prototype прототип шаблона
+     * @throws ProcessorException если произошла ошибка
+     */
+    private void applyFragments(
+        @NotNull ContentAccessor content,
+        Map<Object, Integer> fragments,
+        Collection<String> supportTagNames,
+        Set<Object> generated,
+        FragmentCache fragmentCache,
+        TemplatePrototype prototype
+    ) throws ProcessorException {
+        var nodes = content.getContent();
 
-        for(var node: textNodes) {
-            var textContent = node.getValue();
+        for(var i = 0; i < nodes.size(); i++) {
+            var node = nodes.get(i);
+            var index = fragments.get(node);
+            var value = node instanceof JAXBElement<?> ? ((JAXBElement<?>) node).getValue() : node;
+
+            if(index == null || generated.contains(value)) {
+                continue;
+            }
+
+            var textNodes = getAllElementFromObject(value, Text.class);
+            var tags = fragmentCache.getTags(prototype, index);
 
-            for(var tag: supportTagNames) {
-                if(textContent.contains(tag)) {
-                    foundTags.add(tag);
+            if(tags == null) {
+                tags = getFragmentTags(textNodes, supportTagNames);
+                fragmentCache.putTags(prototype, index, tags);
+            }
+
+            if(tags.isEmpty()) {
+                continue;
+            }
+
+            var values = new StringBuilder();
+
+            try {
+                for(var tag: tags) {
+                    appendValue(values.append(tag).append('='), getTag(tag));
                 }
+            } catch (RuntimeException e) {
+                throw new ProcessorException(e);
+            }
+
+            var key = values.toString();
+            var cached = fragmentCache.get(prototype, index, key);
+
+            if(cached != null) {
+                var copy = XmlUtils.deepCopy(cached);
+
+                nodes.set(i, node instanceof JAXBElement<?> ? rewrap((JAXBElement<?>) node, copy) : copy);
+                generated.add(copy);
+                getMetrics().count(ProcessorCounter.FRAGMENTS_REUSED, 1);
+            } else {
+                replaceTags(textNodes, supportTagNames);
+                fragmentCache.put(prototype, index, key, XmlUtils.deepCopy(value));
+                generated.add(value);
             }
         }
+    }
 
-        for(var table: tableNodes) {
-            var nodes = table.getContent();
-            var rowNodes = getAllElementFromObject(table, Tr.class);
+    /**
+     * Обернуть новое значение в элемент с тем же именем и типом, что и исходный
+     *
+     * @param original исходный элемент
+     * @param value новое значение
+     * @return новый элемент
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static @NotNull JAXBElement<?> rewrap(@NotNull JAXBElement original, Object value) {
+        return new JAXBElement(original.getName(), original.getDeclaredType(), original.getScope(), value);
+    }
 
-            for(var row: rowNodes) {
-                var rowTextNodes = getAllElementFromObject(row, Text.class);
-                var rowIterablesData = isIterableRowCheck(rowTextNodes, supportTagNames);
+    /**
+     * Найти теги фрагмента. Фрагменты с итерируемыми тегами и маркерами блоков не кешируются.
+     *
+     * @param textNodes текстовые узлы фрагмента
+     * @param supportTagNames теги основного подпространства
+     * @return теги фрагмента, или пустой список если фрагмент не кешируется
+     */
+    private @NotNull List<String> getFragmentTags(@NotNull List<Text> textNodes, Collection<String> supportTagNames) {
+        var found = new LinkedHashSet<String>();
 
-                if(rowIterablesData != null) {
-                    var currentSubspace = getSupportTagNames(rowIterablesData.getIterablesPrimaryTag());
+        for(var text: textNodes) {
+            if(tagSyntax.marker(text.getValue()) != null) {
+                return List.of();
+            }
 
-                    for(var node: rowTextNodes) {
-                        var textContent = node.getValue();
+            tagSyntax.collect(text.getValue(), supportTagNames, null, found);
+        }
 
-                        for(var tag: currentSubspace) {
-                            if(textContent.contains(tag)) {
-                                foundTags.add(ProcessorArgumentResolver.getSubPropertyIndex(tag, rowIterablesData.getIterablesPrimaryTag()));
-                            }
-                        }
-                    }
-                } else {
-                    for(var node: rowTextNodes) {
-                        var textContent = node.getValue();
+        for(var tag: found) {
+            if(isIterableTag(tag)) {
+                return List.of();
+            }
+        }
 
-                        for(var tag: supportTagNames) {
-                            if(textContent.contains(tag)) {
-                                foundTags.add(tag);
-                            }
-                        }
-                    }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Обработать таблицу: размножить итерируемые строки и заменить теги в остальных
+     *
+     * @param table таблица
+     * @param supportTagNames теги основного подпространства
+     * @throws ProcessorException если произошла ошибка
+     */
+    private void processTable(@NotNull Tbl table, Collection<String> supportTagNames) throws ProcessorException {
+        var nodes = table.getContent();
+        var rowNodes = getAllElementFromObject(table, Tr.class);
+        var metrics = getMetrics();
+
+        for(var row: rowNodes) {
+            var rowTextNodes = getAllElementFromObject(row, Text.class);
+            var rowIterablesData = isIterableRow(rowTextNodes, supportTagNames);
+
+            if(rowIterablesData != null) {
+                var event = beginEvent(new TableExpansionEvent());
+                var index = nodes.indexOf(row);
+
+                nodes.remove(index);
+                nodes.addAll(index, materialize(List.of(row), null, rowIterablesData.getIterablesPrimaryTag(), rowIterablesData.getIterablesCount()));
+
+                metrics.count(ProcessorCounter.ROWS_GENERATED, rowIterablesData.getIterablesCount());
+                onTableRendered(rowIterablesData.getIterablesPrimaryTag());
+
+                event.tag = rowIterablesData.getIterablesPrimaryTag();
+                event.rows = rowIterablesData.getIterablesCount();
+                event.commit();
+            } else {
+                replaceTags(rowTextNodes, supportTagNames);
+            }
+        }
+    }
+
+    /**
+     * Сгенерировать строки (или блоки) итерируемого тега, прототип повторяется по одному разу на каждый элемент
+     * коллекции. Если задан {@link BaseSequenceTagProcessor#tablePool} и элементов больше чем
+     * {@link BaseSequenceTagProcessor#rowChunkSize}, то индексы разбиваются на части, каждая часть генерируется
+     * в отдельной задаче, а результаты собираются по порядку.
+     *
+     * @param prototype узлы строки или блока шаблона
+     * @param parent элемент, которому принадлежит итерируемый тег, или null для основного подпространства
+     * @param primaryTag итерируемый тег
+     * @param count количество элементов
+     * @return сгенерированные узлы по порядку
+     * @throws ProcessorException если произошла ошибка
+     */
+    private List<Object> materialize(List<Object> prototype, ItemPath parent, String primaryTag, int count) throws ProcessorException {
+        var tablePool = this.tablePool;
+        var chunkSize = Math.max(rowChunkSize, 1);
+        var currentSubspace = tagSyntax.prepare(getSupportTagNames(parent != null ? ProcessorArgumentResolver.getSubPropertyIndex(parent.getSubspace(), primaryTag) : primaryTag));
+
+        if(tablePool == null || count <= chunkSize) {
+            return materialize(prototype, parent, primaryTag, currentSubspace, 0, count);
+        }
+
+        var tasks = new ArrayList<Callable<List<Object>>>();
+
+        for(var from = 0; from < count; from += chunkSize) {
+            var start = from;
+            var end = Math.min(from + chunkSize, count);
+
+            tasks.add(() -> materialize(prototype, parent, primaryTag, currentSubspace, start, end));
+        }
+
+        var result = new ArrayList<Object>(count * prototype.size());
+
+        for(var chunk: invokeAll(tablePool, tasks)) {
+            result.addAll(chunk);
+        }
+
+        return result;
+    }
+
+    /**
+     * Сгенерировать строки (или блоки) итерируемого тега с индексами от from (включительно) до to (не включительно).
+     * Сначала в копии размножаются строки вложенных таблиц, привязанные к вложенным итерируемым тегам элемента,
+     * затем в остальном тексте копии заменяются теги подпространства.
+     */
+    private @NotNull List<Object> materialize(List<Object> prototype, ItemPath parent, String primaryTag, Collection<String> currentSubspace, int from, int to) throws ProcessorException {
+        var metrics = getMetrics();
+        var result = new ArrayList<Object>((to - from) * prototype.size());
+
+        for(var i = from; i < to; i++) {
+            var item = parent != null ? parent.child(primaryTag, i) : ItemPath.of(primaryTag, i);
+
+            for(var node: prototype) {
+                var cloneStart = metrics.start();
+                var newNode = XmlUtils.deepCopy(node);
+                metrics.stop(ProcessorPhase.ROW_CLONING, cloneStart);
+                var nested = Collections.newSetFromMap(new IdentityHashMap<>());
+
+                for(var table: getAllElementFromObject(newNode, Tbl.class)) {
+                    expandNestedRows(table, item, currentSubspace, nested);
                 }
+
+                var newTextNodes = getAllElementFromObject(newNode, Text.class, nested);
+                replaceTags(newTextNodes, currentSubspace, primaryTag, tag -> getTag(item, tag));
+                result.add(newNode);
             }
         }
 
+        return result;
+    }
+
+    /**
+     * Размножить строки таблицы внутри элемента итерируемого тега, привязанные к вложенным итерируемым тегам элемента
+     *
+     * @param table таблица внутри копии строки или блока
+     * @param item элемент внешнего итерируемого тега
+     * @param itemTagNames теги подпространства элемента
+     * @param generated сгенерированные строки, теги подпространства элемента в них уже не ищутся
+     * @throws ProcessorException если произошла ошибка
+     */
+    private void expandNestedRows(@NotNull Tbl table, ItemPath item, Collection<String> itemTagNames, Set<Object> generated) throws ProcessorException {
+        var nodes = table.getContent();
+
+        for(var row: getAllElementFromObject(table, Tr.class)) {
+            var count = new int[1];
+            var nestedTag = (String) null;
+
+            try {
+                for(var text: getAllElementFromObject(row, Text.class)) {
+                    nestedTag = tagSyntax.find(text.getValue(), itemTagNames, item.getTag(), tag -> (count[0] = getTableRowCount(item, tag)) > -1);
+
+                    if(nestedTag != null) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new ProcessorException(e);
+            }
+
+            var index = nodes.indexOf(row);
+
+            if(nestedTag == null || index < 0) {
+                continue;
+            }
+
+            var rows = materialize(List.of(row), item, nestedTag, count[0]);
+
+            nodes.remove(index);
+            nodes.addAll(index, rows);
+            generated.addAll(rows);
+
+            getMetrics().count(ProcessorCounter.ROWS_GENERATED, count[0]);
+        }
+    }
+
+    /**
+     * Выполнить задачи в пуле и дождаться их результатов
+     *
+     * @param pool пул
+     * @param tasks задачи
+     * @param <T> тип результата задачи
+     * @return результаты задач в порядке задач
+     * @throws ProcessorException если одна из задач завершилась с ошибкой
+     */
+    private static <T> @NotNull List<T> invokeAll(@NotNull ForkJoinPool pool, List<Callable<T>> tasks) throws ProcessorException {
+        var result = new ArrayList<T>(tasks.size());
+
+        try {
+            for(var future: pool.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+
+            if(cause instanceof ProcessorException) {
+                throw (ProcessorException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new ProcessorException(cause);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessorException(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Обработать шаблон, в котором теги - это элементы управления содержимым. Индекс элементов строится за один обход,
+     * после чего изменяются только привязанные элементы.
+     *
+     * @param template шаблон
+     * @throws ProcessorException если произошла ошибка
+     */
+    private void processContentControls(@NotNull WordprocessingMLPackage template) throws ProcessorException {
+        var index = indexContentControls(template.getMainDocumentPart(), new HashSet<>(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE)));
+
+        for(var entry: index.entrySet()) {
+            var tag = entry.getKey();
+
+            if(isIterableTag(tag)) {
+                for(var control: entry.getValue()) {
+                    expandContentControl(control, tag);
+                }
+            } else {
+                fillContentControls(entry.getValue(), tag, this::getTag);
+            }
+        }
+    }
+
+    /**
+     * Повторить содержимое элемента управления, привязанного к итерируемому тегу, по одному разу на каждый элемент
+     * коллекции и заполнить вложенные элементы тегами подпространства
+     *
+     * @param control элемент управления
+     * @param primaryTag итерируемый тег
+     * @throws ProcessorException если произошла ошибка
+     */
+    private void expandContentControl(@NotNull SdtElement control, String primaryTag) throws ProcessorException {
+        var metrics = getMetrics();
+        var event = beginEvent(new TableExpansionEvent());
+        var content = control.getSdtContent().getContent();
+        var prototype = new ArrayList<>(content);
+        var subspace = new HashSet<>(getSupportTagNames(primaryTag));
+        var count = getTableRowCountChecked(primaryTag);
+
+        content.clear();
+
+        for(var i = 0; i < count; i++) {
+            var cloneStart = metrics.start();
+            var item = new ArrayList<>(prototype.size());
+
+            for(var node: prototype) {
+                item.add(XmlUtils.deepCopy(node));
+            }
+
+            metrics.stop(ProcessorPhase.ROW_CLONING, cloneStart);
+
+            var dataIndex = i;
+
+            for(var entry: indexContentControls(item, subspace).entrySet()) {
+                fillContentControls(entry.getValue(), entry.getKey(), tag -> getTag(primaryTag, dataIndex, tag));
+            }
+
+            content.addAll(item);
+        }
+
+        removePlaceholder(control);
+
+        metrics.count(ProcessorCounter.ROWS_GENERATED, count);
+        onTableRendered(primaryTag);
+
+        event.tag = primaryTag;
+        event.rows = count;
+        event.commit();
+    }
+
+    private int getTableRowCountChecked(String primaryTag) throws ProcessorException {
+        try {
+            return Math.max(getTableRowCount(primaryTag), 0);
+        } catch (RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Заменить содержимое элементов управления значением тега. Значение пишется в первый текстовый узел элемента,
+     * остальные текстовые узлы очищаются, поэтому форматирование первого узла сохраняется.
+     *
+     * @param controls элементы управления, привязанные к тегу
+     * @param tag тег
+     * @param values функция получения значения тега
+     * @throws ProcessorException если произошла ошибка
+     */
+    private void fillContentControls(@NotNull List<SdtElement> controls, String tag, Function<String, String> values) throws ProcessorException {
+        var metrics = getMetrics();
+        var resolveStart = metrics.start();
+        var value = (String) null;
+
+        try {
+            value = values.apply(tag);
+        } catch (RuntimeException e) {
+            throw new ProcessorException(e);
+        } finally {
+            metrics.stop(ProcessorPhase.RESOLUTION, resolveStart);
+        }
+
+        for(var control: controls) {
+            var content = control.getSdtContent();
+            var textNodes = getAllElementFromObject(content, Text.class);
+
+            if(textNodes.isEmpty()) {
+                var factory = Context.getWmlObjectFactory();
+                var run = factory.createR();
+                var text = factory.createText();
+
+                run.getContent().add(text);
+                textNodes.add(text);
+
+                if(control instanceof SdtRun) {
+                    content.getContent().add(run);
+                } else {
+                    var paragraph = factory.createP();
+                    paragraph.getContent().add(run);
+                    content.getContent().add(paragraph);
+                }
+            }
+
+            for(var i = 0; i < textNodes.size(); i++) {
+                var text = textNodes.get(i);
+
+                text.setValue(i == 0 ? value : "");
+                text.setSpace(i == 0 ? "preserve" : null);
+            }
+
+            removePlaceholder(control);
+        }
+
+        metrics.count(ProcessorCounter.TAGS_REPLACED, controls.size());
+    }
+
+    /**
+     * Снять с элемента управления признак отображения текста-подсказки, иначе Word покажет значение как подсказку
+     *
+     * @param control элемент управления
+     */
+    private static void removePlaceholder(@NotNull SdtElement control) {
+        var properties = control.getSdtPr();
+
+        if(properties != null) {
+            properties.getRPrOrAliasOrLock().removeIf(current -> current instanceof JAXBElement && "showingPlcHdr".equals(((JAXBElement<?>) current).getName().getLocalPart()));
+        }
+    }
+
+    /**
+     * Построить индекс элементов управления содержимым за один обход. В элементы, привязанные к тегу, обход
+     * не спускается, их содержимое принадлежит тегу (или подпространству итерируемого тега).
+     *
+     * @param root корневой узел или список узлов
+     * @param supportTagNames поддерживаемые теги
+     * @return элементы управления по тегам, в порядке документа
+     */
+    private @NotNull Map<String, List<SdtElement>> indexContentControls(Object root, Set<String> supportTagNames) {
+        var metrics = getMetrics();
+        var start = metrics.start();
+        var result = new LinkedHashMap<String, List<SdtElement>>();
+        var stack = new ArrayDeque<>();
+
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            var current = stack.pop();
+
+            if(current instanceof JAXBElement<?>) {
+                current = ((JAXBElement<?>) current).getValue();
+            }
+
+            var children = (List<?>) null;
+
+            if(current instanceof SdtElement) {
+                var control = (SdtElement) current;
+                var tag = getContentControlTag(control);
+
+                if(tag != null && supportTagNames.contains(tag)) {
+                    result.computeIfAbsent(tag, key -> new ArrayList<>()).add(control);
+                } else if(control.getSdtContent() != null) {
+                    children = control.getSdtContent().getContent();
+                }
+            } else if(current instanceof ContentAccessor) {
+                children = ((ContentAccessor) current).getContent();
+            } else if(current instanceof List<?>) {
+                children = (List<?>) current;
+            }
+
+            if(children != null) {
+                for(var i = children.size() - 1; i >= 0; i--) {
+                    if(children.get(i) != null) {
+                        stack.push(children.get(i));
+                    }
+                }
+            }
+        }
+
+        metrics.stop(ProcessorPhase.TRAVERSAL, start);
+
+        return result;
+    }
+
+    private static @Nullable String getContentControlTag(@NotNull SdtElement control) {
+        var properties = control.getSdtPr();
+
+        if(properties == null || properties.getTag() == null) {
+            return null;
+        }
+
+        return properties.getTag().getVal();
+    }
+
+    /**
+     * Проверить шаблон, в котором теги - это элементы управления содержимым
+     *
+     * @param template шаблон
+     * @return используемые теги
+     */
+    private @NotNull Collection<String> doValidateContentControls(@NotNull WordprocessingMLPackage template) {
+        var foundTags = new HashSet<String>();
+        var index = indexContentControls(template.getMainDocumentPart(), new HashSet<>(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE)));
+
+        for(var entry: index.entrySet()) {
+            var tag = entry.getKey();
+
+            foundTags.add(tag);
+
+            if(isIterableTag(tag)) {
+                var subspace = new HashSet<>(getSupportTagNames(tag));
+
+                for(var control: entry.getValue()) {
+                    for(var subTag: indexContentControls(control.getSdtContent(), subspace).keySet()) {
+                        foundTags.add(ProcessorArgumentResolver.getSubPropertyIndex(subTag, tag));
+                    }
+                }
+            }
+        }
+
+        return foundTags;
+    }
+
+    /**
+     * Добавить в found теги условий всех маркеров условных блоков шаблона
+     *
+     * @param root узел документа
+     * @param foundTags найденные теги
+     */
+    private void collectConditionTags(Object root, Collection<String> foundTags) {
+        var supportTagNames = new HashSet<>(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE));
+
+        for(var node: getAllElementFromObject(root, P.class)) {
+            var marker = getMarker(node, supportTagNames);
+
+            if(marker != null) {
+                foundTags.add(marker.substring(1));
+            }
+        }
+    }
+
+    /**
+     * Обойти текст шаблона так же, как его обходит обработка: итерируемые строки таблиц и повторяющиеся блоки вне таблиц
+     * передаются целиком, остальной текст - по текстовым узлам. Используется проверкой и оценкой сложности шаблона.
+     *
+     * @param root основная часть документа
+     * @param supportTagNames теги основного подпространства
+     * @param visitor получатель текста
+     * @throws ProcessorException если повторяющийся блок не закрыт
+     */
+    private void visitTemplate(@NotNull ContentAccessor root, Collection<String> supportTagNames, TemplateVisitor visitor) throws ProcessorException {
+        var blockNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        visitBlocks(root, supportTagNames, visitor, blockNodes);
+
+        var tableNodes = getAllElementFromObject(root, Tbl.class, blockNodes);
+        var excludes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        excludes.addAll(tableNodes);
+        excludes.addAll(blockNodes);
+
+        for(var node: getAllElementFromObject(root, Text.class, excludes)) {
+            visitor.text(node.getValue());
+        }
+
+        for(var table: tableNodes) {
+            for(var row: getAllElementFromObject(table, Tr.class)) {
+                var rowTextNodes = getAllElementFromObject(row, Text.class);
+                var rowIterablesData = isIterableRowCheck(rowTextNodes, supportTagNames);
+
+                if(rowIterablesData != null) {
+                    var primaryTag = rowIterablesData.getIterablesPrimaryTag();
+
+                    visitor.repeat(primaryTag, tagSyntax.prepare(getSupportTagNames(primaryTag)), List.of(row), rowTextNodes);
+                } else {
+                    for(var node: rowTextNodes) {
+                        visitor.text(node.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Передать получателю повторяющиеся блоки вне таблиц
+     *
+     * @param root узел документа
+     * @param supportTagNames теги основного подпространства
+     * @param visitor получатель текста
+     * @param blockNodes узлы блоков, в них теги основного подпространства не ищутся
+     * @throws ProcessorException если повторяющийся блок не закрыт
+     */
+    private void visitBlocks(@NotNull ContentAccessor root, Collection<String> supportTagNames, TemplateVisitor visitor, Set<Object> blockNodes) throws ProcessorException {
+        var content = root.getContent();
+
+        for(var i = 0; i < content.size(); i++) {
+            var marker = getMarker(content.get(i), supportTagNames);
+
+            if(marker == null || marker.charAt(0) != '#' || !isIterableTag(marker.substring(1))) {
+                continue;
+            }
+
+            var primaryTag = marker.substring(1);
+            var end = findBlockEnd(content, i, primaryTag, supportTagNames);
+
+            if(end < 0) {
+                throw new ProcessorException("Repeating block '" + primaryTag + "' is not closed.");
+            }
+
+            var nodes = new ArrayList<>();
+            var texts = new ArrayList<Text>();
+
+            for(var node: content.subList(i, end + 1)) {
+                var value = node instanceof JAXBElement<?> ? ((JAXBElement<?>) node).getValue() : node;
+
+                texts.addAll(getAllElementFromObject(value, Text.class));
+                nodes.add(value);
+                blockNodes.add(value);
+            }
+
+            visitor.repeat(primaryTag, tagSyntax.prepare(getSupportTagNames(primaryTag)), nodes, texts);
+
+            i = end;
+        }
+
+        for(var current: content) {
+            if(current instanceof JAXBElement<?>) {
+                current = ((JAXBElement<?>) current).getValue();
+            }
+
+            if(current instanceof ContentAccessor && !(current instanceof P) && !(current instanceof Tbl) && !blockNodes.contains(current)) {
+                visitBlocks((ContentAccessor) current, supportTagNames, visitor, blockNodes);
+            }
+        }
+    }
+
+    /**
+     * Получатель текста шаблона (см. {@link BaseSequenceTagProcessor#visitTemplate})
+     */
+    private interface TemplateVisitor {
+        /**
+         * Текст вне итерируемых строк и повторяющихся блоков, в нем ищутся теги основного подпространства
+         *
+         * @param text текст узла
+         */
+        void text(String text);
+
+        /**
+         * Итерируемая строка таблицы или повторяющийся блок, в его тексте ищутся теги подпространства
+         *
+         * @param primaryTag итерируемый тег
+         * @param subspaceTagNames подготовленные теги подпространства
+         * @param nodes узлы строки или блока
+         * @param texts текстовые узлы строки или блока
+         */
+        void repeat(String primaryTag, Collection<String> subspaceTagNames, List<Object> nodes, List<Text> texts);
+    }
+
+    @Override
+    public Collection<String> doValidate(@NotNull WordprocessingMLPackage template) throws ProcessorException {
+        var event = beginEvent(new TemplateCompileEvent());
+
+        if(tagBinding == TagBinding.CONTENT_CONTROL) {
+            var foundTags = doValidateContentControls(template);
+
+            collectConditionTags(template.getMainDocumentPart(), foundTags);
+
+            event.template = getTemplateName(template);
+            event.tags = foundTags.size();
+            event.commit();
+
+            return foundTags;
+        }
+
+        var foundTags = new HashSet<String>();
+        var supportTagNames = tagSyntax.prepare(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE));
+
+        collectConditionTags(template.getMainDocumentPart(), foundTags);
+
+        visitTemplate(template.getMainDocumentPart(), supportTagNames, new TemplateVisitor() {
+            @Override
+            public void text(String text) {
+                tagSyntax.collect(text, supportTagNames, null, foundTags);
+            }
+
+            @Override
+            public void repeat(String primaryTag, Collection<String> subspaceTagNames, List<Object> nodes, List<Text> texts) {
+                var rowTags = new HashSet<String>();
+
+                for(var node: texts) {
+                    tagSyntax.collect(node.getValue(), subspaceTagNames, primaryTag, rowTags);
+                }
+
+                for(var tag: rowTags) {
+                    foundTags.add(ProcessorArgumentResolver.getSubPropertyIndex(tag, primaryTag));
+                }
+            }
+        });
+
+        event.template = getTemplateName(template);
+        event.tags = foundTags.size();
+        event.commit();
+
         return foundTags;
     }
+
+    /**
+     * Оценить сложность шаблона и стоимость его обработки с текущими данными (см. {@link TemplateComplexity})
+     *
+     * @param input поток шаблона
+     * @return сложность шаблона
+     * @throws ProcessorException если шаблон не удалось загрузить или значение тега не удалось получить
+     */
+    public TemplateComplexity doAnalyze(InputStream input) throws ProcessorException {
+        try {
+            return doAnalyze(WordprocessingMLPackage.load(input));
+        } catch (Docx4JException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Оценить сложность шаблона и стоимость его обработки с текущими данными (см. {@link TemplateComplexity}).
+     * Шаблон обходится так же, как при проверке ({@link BaseSequenceTagProcessor#doValidate(WordprocessingMLPackage)}),
+     * количество повторений итерируемых строк и блоков берется из текущих данных.
+     *
+     * @param template шаблон, не изменяется
+     * @return сложность шаблона
+     * @throws ProcessorException если повторяющийся блок не закрыт, или значение тега не удалось получить
+     */
+    public TemplateComplexity doAnalyze(@NotNull WordprocessingMLPackage template) throws ProcessorException {
+        var main = template.getMainDocumentPart();
+        var counter = new ComplexityCounter();
+        var totals = countNodes(main);
+
+        try {
+            if(tagBinding == TagBinding.CONTENT_CONTROL) {
+                counter.occurrences.put(ProcessorTypeProvider.MAIN_SUBSPACE, doValidateContentControls(template).size());
+            } else {
+                var supportTagNames = tagSyntax.prepare(getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE));
+
+                visitTemplate(main, supportTagNames, new TemplateVisitor() {
+                    @Override
+                    public void text(String text) {
+                        counter.occur(ProcessorTypeProvider.MAIN_SUBSPACE, tagSyntax.count(text, supportTagNames, null));
+                    }
+
+                    @Override
+                    public void repeat(String primaryTag, Collection<String> subspaceTagNames, List<Object> nodes, List<Text> texts) {
+                        var count = 0L;
+                        var tags = 0;
+
+                        for(var node: nodes) {
+                            count += countNodes(node)[0];
+                        }
+
+                        for(var node: texts) {
+                            tags += tagSyntax.count(node.getValue(), subspaceTagNames, primaryTag);
+                        }
+
+                        counter.repeat(primaryTag, count, tags);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+
+        var partSizes = new LinkedHashMap<String, Long>();
+        var imageBytes = 0L;
+        var partBytes = 0L;
+
+        for(var part: template.getParts().getParts().values()) {
+            var size = part.getContentLengthAsLoaded();
+
+            if(part instanceof BinaryPart && ((BinaryPart) part).getBuffer() != null) {
+                size = ((BinaryPart) part).getBuffer().capacity();
+            }
+
+            if(size < 0) {
+                continue;
+            }
+
+            if(part instanceof BinaryPartAbstractImage) {
+                imageBytes += size;
+            }
+
+            partSizes.put(part.getPartName().getName(), size);
+            partBytes += size;
+        }
+
+        var tags = 0L;
+
+        for(var count: counter.occurrences.values()) {
+            tags += count;
+        }
+
+        return new TemplateComplexity(
+            totals[0],
+            totals[1],
+            totals[2],
+            counter.occurrences,
+            counter.fanOut,
+            imageBytes,
+            partSizes,
+            totals[0] + tags + counter.expanded + partBytes / 1024
+        );
+    }
+
+    /**
+     * Посчитать узлы поддерева
+     *
+     * @param root корень поддерева
+     * @return количество узлов, фрагментов текста (w:r) и текстовых узлов (w:t)
+     */
+    private static long @NotNull [] countNodes(Object root) {
+        var result = new long[3];
+        var stack = new ArrayDeque<Object>();
+
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+
+            if(node instanceof JAXBElement<?>) {
+                node = ((JAXBElement<?>) node).getValue();
+            }
+
+            result[0]++;
+
+            if(node instanceof R) {
+                result[1]++;
+            } else if(node instanceof Text) {
+                result[2]++;
+            }
+
+            if(node instanceof ContentAccessor) {
+                for(var child: ((ContentAccessor) node).getContent()) {
+                    if(child != null) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Счетчик сложности шаблона
+     */
+    private final class ComplexityCounter {
+        private final Map<String, Integer> occurrences = new LinkedHashMap<>();
+        private final Map<String, Integer> fanOut = new LinkedHashMap<>();
+        private long expanded;
+
+        private void occur(String subspace, int count) {
+            if(count > 0) {
+                occurrences.merge(subspace, count, Integer::sum);
+            }
+        }
+
+        /**
+         * Учесть итерируемую строку или блок: узлы и теги будут повторены по количеству элементов коллекции
+         * (если количество получить не удалось, то один раз)
+         */
+        private void repeat(String primaryTag, long nodes, int tags) {
+            var count = fanOut.get(primaryTag);
+
+            if(count == null) {
+                try {
+                    count = getTableRowCount(primaryTag);
+                } catch (RuntimeException e) {
+                    count = -1;
+                }
+
+                fanOut.put(primaryTag, count);
+            }
+
+            occur(primaryTag, tags);
+
+            expanded += (nodes + tags) * (count >= 0 ? count : 1);
+        }
+    }
+
+    @Override
+    protected void doProcess(InputStream input, OutputStream output, String name) throws ProcessorException {
+        var outputCache = this.outputCache;
+
+        if(outputCache == null || tagBinding != TagBinding.TEXT) {
+            super.doProcess(input, output, name); return;
+        }
+
+        var error = (Throwable) null;
+        var metrics = beginRender();
+
+        try {
+            var template = input.readAllBytes();
+            var key = getOutputCacheKey(template);
+
+            if(key == null) {
+                super.doProcess(new ByteArrayInputStream(template), output, name); return;
+            }
+
+            var cached = outputCache.get(key);
+
+            if(cached != null) {
+                output.write(cached);
+                metrics.count(ProcessorCounter.BYTES_IN, template.length);
+                metrics.count(ProcessorCounter.OUTPUT_CACHE_HITS, 1);
+                metrics.count(ProcessorCounter.BYTES_OUT, cached.length);
+                return;
+            }
+
+            var buffer = new ByteArrayOutputStream();
+
+            super.doProcess(new ByteArrayInputStream(template), buffer, name);
+
+            var result = buffer.toByteArray();
+
+            outputCache.put(key, result);
+            output.write(result);
+        } catch (IOException e) {
+            error = e; throw new ProcessorException(e);
+        } catch (ProcessorException | RuntimeException e) {
+            error = e; throw e;
+        } finally {
+            endRender(error);
+        }
+    }
+
+    /**
+     * Получить ключ кеша готовых документов. Ключ состоит из отпечатка шаблона, набора тегов и значений всех тегов,
+     * которые используются в шаблоне. Значения получаются до загрузки шаблона и остаются в кеше значений, поэтому
+     * при промахе отрисовка получает их повторно уже из кеша.
+     *
+     * @param template содержимое шаблона
+     * @return ключ кеша, или null если документ не кешируется (шаблон использует вложенные итерируемые теги)
+     * @throws ProcessorException если шаблон не удалось прочитать или значение тега не удалось получить
+     */
+    protected String getOutputCacheKey(byte[] template) throws ProcessorException {
+        var scan = doScan(new ByteArrayInputStream(template));
+        var values = new StringBuilder();
+
+        try {
+            for(var tag: getSupportTagNames(ProcessorTypeProvider.MAIN_SUBSPACE)) {
+                if(scan.getTags().contains(tag)) {
+                    appendValue(values.append(tag).append('='), getTag(tag));
+                }
+            }
+
+            for(var row: scan.getRows()) {
+                var primaryTag = row.getPrimaryTag();
+                var count = getTableRowCount(primaryTag);
+
+                values.append(primaryTag).append('[').append(count).append(']');
+
+                for(var tag: row.getTags()) {
+                    if(isIterableTag(ProcessorArgumentResolver.getSubPropertyIndex(primaryTag, tag))) {
+                        return null;
+                    }
+                }
+
+                for(var i = 0; i < count; i++) {
+                    for(var tag: row.getTags()) {
+                        appendValue(values.append(tag).append('='), getTag(primaryTag, i, tag));
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+
+        return CompiledTemplate.digest(template) + ":" +
+            getTemplateCompiler().getCatalogDigest() + ":" +
+            CompiledTemplate.digest(values.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendValue(@NotNull StringBuilder values, String value) {
+        if(value == null) {
+            values.append(-1);
+        } else {
+            values.append(value.length()).append(':').append(value);
+        }
+    }
+
+    /**
+     * Быстро проверить шаблон, не загружая его через docx4j. Основная часть документа читается потоково прямо
+     * из архива, набор найденных тегов совпадает с {@link BaseSequenceTagProcessor#doValidate(WordprocessingMLPackage)}.
+     *
+     * @param input поток шаблона
+     * @return используемые теги, итерируемые строки и теги их подпространств
+     * @throws ProcessorException если шаблон не удалось прочитать, или повторяющийся блок не закрыт
+     */
+    public ScanResult doScan(InputStream input) throws ProcessorException {
+        requireTextBinding();
+
+        return new RawTemplateScanner(this::getSupportTagNames, this::isIterableTag, tagSyntax).scan(input);
+    }
+
+    /**
+     * Посчитать, сколько строк таблиц будет сгенерировано при обработке шаблона с текущими данными
+     *
+     * @param input поток шаблона
+     * @return количество строк
+     * @throws ProcessorException если шаблон не удалось прочитать или значение тега не удалось получить
+     */
+    public long doCountRows(InputStream input) throws ProcessorException {
+        var result = 0L;
+
+        try {
+            for(var row: doScan(input).getRows()) {
+                result += Math.max(getTableRowCount(row.getPrimaryTag()), 0);
+            }
+        } catch (RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Скомпилировать шаблон. Скомпилированный шаблон можно сохранить через {@link CompiledTemplate#write(Path)}
+     * и отрисовывать через {@link BaseSequenceTagProcessor#doProcess(CompiledTemplate, OutputStream)} без загрузки
+     * шаблона через docx4j.
+     *
+     * @param input поток шаблона
+     * @return скомпилированный шаблон
+     * @throws ProcessorException если шаблон не удалось прочитать
+     */
+    public CompiledTemplate doCompile(@NotNull InputStream input) throws ProcessorException {
+        requireTextBinding();
+
+        try {
+            return getTemplateCompiler().compile(input.readAllBytes());
+        } catch (IOException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Получить скомпилированный шаблон для быстрого старта. Если файл artifact существует, собран из этого же
+     * шаблона, с этим же набором тегов и в текущей версии формата, то он просто загружается. Иначе шаблон
+     * компилируется заново и artifact перезаписывается.
+     *
+     * @param template путь до шаблона
+     * @param artifact путь до скомпилированного шаблона
+     * @return скомпилированный шаблон
+     * @throws ProcessorException если шаблон не удалось прочитать или скомпилировать
+     */
+    public CompiledTemplate doCompile(Path template, Path artifact) throws ProcessorException {
+        requireTextBinding();
+
+        try {
+            var data = Files.readAllBytes(template);
+            var compiler = getTemplateCompiler();
+            var templateDigest = CompiledTemplate.digest(data);
+
+            if(Files.exists(artifact)) {
+                try {
+                    var compiled = CompiledTemplate.read(artifact);
+
+                    if(compiled.getTemplateDigest().equals(templateDigest) && compiled.getCatalogDigest().equals(compiler.getCatalogDigest())) {
+                        return compiled;
+                    }
+                } catch (ProcessorException e) {
+                    if(loggable) {
+                        log.warn("Compiled template '" + artifact + "' cannot be read and will be recompiled. " + e.getMessage());
+                    }
+                }
+            }
+
+            var compiled = compiler.compile(data);
+
+            compiled.write(artifact);
+
+            return compiled;
+        } catch (IOException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Отрисовать скомпилированный шаблон
+     *
+     * @param compiled скомпилированный шаблон
+     * @param output поток документа
+     * @throws ProcessorException если шаблон был скомпилирован с другим набором тегов, или произошла ошибка
+     */
+    public void doProcess(@NotNull CompiledTemplate compiled, OutputStream output) throws ProcessorException {
+        long start = System.currentTimeMillis();
+        var error = (Throwable) null;
+        var metrics = beginRender();
+        var name = getTemplateName(compiled);
+        var event = beginEvent(new TemplateRenderEvent(), name);
+
+        try {
+            if(!compiled.getCatalogDigest().equals(getTemplateCompiler().getCatalogDigest())) {
+                throw new ProcessorException("Compiled template was built with another set of tags and must be recompiled.");
+            }
+
+            var saveEvent = beginEvent(new TemplateSaveEvent(), name);
+            var countedOutput = metrics.isEnabled() || saveEvent.isEnabled() ? new CountingOutputStream(output) : null;
+
+            compiled.render(getTagSource(), countedOutput != null ? countedOutput : output, metrics);
+
+            if(countedOutput != null) {
+                metrics.count(ProcessorCounter.BYTES_OUT, countedOutput.getCount());
+                saveEvent.bytes = countedOutput.getCount();
+            }
+
+            saveEvent.commit();
+        } catch (ProcessorException | RuntimeException e) {
+            error = e; throw e;
+        } finally {
+            event.commit();
+            endRender(error);
+        }
+
+        if(loggable) {
+            log.info("Compiled template processing complete. Took " + (System.currentTimeMillis() - start) + "ms.");
+        }
+    }
+
+    /**
+     * Получить идентификатор скомпилированного шаблона для событий JFR, по отпечатку исходного шаблона
+     *
+     * @param compiled скомпилированный шаблон
+     * @return идентификатор шаблона
+     */
+    protected static String getTemplateName(@NotNull CompiledTemplate compiled) {
+        return CompiledTemplate.class.getSimpleName() + "@" + compiled.getTemplateDigest();
+    }
+
+    /**
+     * Отрисовать скомпилированный шаблон с выдачей документа по частям. Документ пишется по мере спроса подписчика,
+     * поэтому первые части уходят раньше, чем будет отрисована последняя строка таблицы, а пока спроса нет,
+     * отрисовка приостановлена и поток не занимает.
+     * <p>
+     * Отрисовка не входит в обработки обработчика: у нее свои метрики (слушатели получают их, когда документ записан,
+     * прерван ошибкой или отменен) и свой источник значений (см. {@link #getDetachedTagSource(ProcessorMetrics)}),
+     * поэтому приостановленная отрисовка не мешает другим обработкам.
+     *
+     * @param compiled скомпилированный шаблон
+     * @param executor исполнитель, в котором выполняется отрисовка
+     * @return издатель документа, поддерживает одного подписчика
+     * @throws ProcessorException если шаблон был скомпилирован с другим набором тегов
+     */
+    public Flow.Publisher<ByteBuffer> doPublish(@NotNull CompiledTemplate compiled, Executor executor) throws ProcessorException {
+        if(!compiled.getCatalogDigest().equals(getTemplateCompiler().getCatalogDigest())) {
+            throw new ProcessorException("Compiled template was built with another set of tags and must be recompiled.");
+        }
+
+        return new ChunkedPublisher(output -> {
+            var metrics = createMetrics();
+            var countedOutput = new CountingOutputStream(output);
+            var producer = compiled.producer(getDetachedTagSource(metrics), countedOutput, metrics);
+
+            return new ChunkProducer() {
+                @Override
+                public boolean produce() throws Exception {
+                    return producer.produce();
+                }
+
+                @Override
+                public void close(Throwable error) {
+                    metrics.count(ProcessorCounter.BYTES_OUT, countedOutput.getCount());
+                    metrics.setError(error);
+                    notifyListeners(metrics);
+                }
+            };
+        }, executor, ChunkedPublisher.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Проверка и компиляция шаблона без docx4j поддерживают только теги в тексте документа
+     *
+     * @throws ProcessorException если выбрана привязка тегов к элементам управления содержимым
+     */
+    private void requireTextBinding() throws ProcessorException {
+        if(tagBinding != TagBinding.TEXT) {
+            throw new ProcessorException("Raw scanning and compiled templates are not supported for " + tagBinding + " tag binding.");
+        }
+    }
+
+    /**
+     * Получить компилятор шаблонов для текущего набора тегов
+     *
+     * @return компилятор шаблонов
+     */
+    protected TemplateCompiler getTemplateCompiler() {
+        return new TemplateCompiler(this::getSupportTagNames, this::isIterableTag, tagSyntax);
+    }
+
+    /**
+     * Получить источник значений тегов для отрисовки скомпилированного шаблона
+     *
+     * @return источник значений тегов
+     */
+    protected TagSource getTagSource() {
+        return new TagSource() {
+            @Override
+            public String getTag(String key) {
+                return BaseSequenceTagProcessor.this.getTag(key);
+            }
+
+            @Override
+            public String getTag(String key, Integer index, String subKey) {
+                return BaseSequenceTagProcessor.this.getTag(key, index, subKey);
+            }
+
+            @Override
+            public Integer getTableRowCount(String key) {
+                return BaseSequenceTagProcessor.this.getTableRowCount(key);
+            }
+
+            @Override
+            public void release(String key) {
+                onTableRendered(key);
+            }
+        };
+    }
+
+    /**
+     * Получить источник значений тегов для отрисовки, которая выполняется независимо от обработок обработчика
+     * (см. {@link #doPublish(CompiledTemplate, Executor)}). По умолчанию используется {@link #getTagSource()},
+     * то есть состояние обработчика: пока такая отрисовка не завершена, обработчик не должен использоваться для
+     * других обработок. Наследники с собственным состоянием значений должны возвращать источник с отдельным состоянием.
+     *
+     * @param metrics метрики отрисовки
+     * @return источник значений тегов
+     */
+    protected TagSource getDetachedTagSource(ProcessorMetrics metrics) {
+        return getTagSource();
+    }
 }
@@ -0,0 +1,14 @@
+package io.github.asewhy.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.asewhy.TableExpansion")
+@Label("Table Expansion")
+public class TableExpansionEvent extends TemplateEvent {
+    @Label("Primary Tag")
+    public String tag;
+
+    @Label("Rows")
+    public int rows;
+}
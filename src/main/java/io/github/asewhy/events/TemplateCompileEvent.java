@@ -0,0 +1,11 @@
+package io.github.asewhy.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.asewhy.TemplateCompile")
+@Label("Template Compile")
+public class TemplateCompileEvent extends TemplateEvent {
+    @Label("Tags")
+    public int tags;
+}
@@ -0,0 +1,20 @@
+package io.github.asewhy.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Базовое событие JFR обработки шаблона, содержит идентификатор шаблона и класс обработчика
+ */
+@Category("Docx Template Processor")
+public abstract class TemplateEvent extends Event {
+    @Label("Template")
+    @Description("Template identity")
+    public String template;
+
+    @Label("Processor")
+    @Description("Processor class")
+    public Class<?> processor;
+}
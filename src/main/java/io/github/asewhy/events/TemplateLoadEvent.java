@@ -0,0 +1,13 @@
+package io.github.asewhy.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.asewhy.TemplateLoad")
+@Label("Template Load")
+public class TemplateLoadEvent extends TemplateEvent {
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
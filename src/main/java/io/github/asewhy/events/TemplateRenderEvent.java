@@ -0,0 +1,10 @@
+package io.github.asewhy.events;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.asewhy.TemplateRender")
+@Label("Template Render")
+public class TemplateRenderEvent extends TemplateEvent {
+
+}
@@ -0,0 +1,13 @@
+package io.github.asewhy.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.asewhy.TemplateSave")
+@Label("Template Save")
+public class TemplateSaveEvent extends TemplateEvent {
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
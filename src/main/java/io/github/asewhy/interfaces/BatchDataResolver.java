@@ -0,0 +1,22 @@
+package io.github.asewhy.interfaces;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Поставщик данных сразу для многих обработок. Получает все ключи (например идентификаторы сущностей), которые нужны
+ * группе ожидающих обработок, и возвращает данные для них за один вызов.
+ *
+ * @param <K> тип ключа
+ * @param <T> тип данных
+ */
+@FunctionalInterface
+public interface BatchDataResolver<K, T> {
+    /**
+     * Получить данные по ключам
+     *
+     * @param keys ключи обработок группы, без повторов
+     * @return данные по ключам, ключей без данных может не быть в результате
+     */
+    Map<K, T> resolve(Collection<K> keys);
+}
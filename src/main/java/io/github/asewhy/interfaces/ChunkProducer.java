@@ -0,0 +1,20 @@
+package io.github.asewhy.interfaces;
+
+public interface ChunkProducer {
+    /**
+     * Записать следующую часть документа в поток, для которого был создан производитель
+     *
+     * @return false, если документ записан полностью
+     * @throws Exception если произошла ошибка
+     */
+    boolean produce() throws Exception;
+
+    /**
+     * Вызывается один раз, когда запись документа закончена, прервана ошибкой или отменена
+     *
+     * @param error ошибка, или null если документ записан полностью
+     */
+    default void close(Throwable error) {
+
+    }
+}
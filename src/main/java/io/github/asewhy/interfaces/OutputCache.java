@@ -0,0 +1,26 @@
+package io.github.asewhy.interfaces;
+
+import org.jetbrains.annotations.Nullable;
+
+public interface OutputCache {
+    /**
+     * Получить ранее сохраненный документ
+     *
+     * @param key ключ документа (отпечаток шаблона и значений тегов)
+     * @return содержимое документа, или null если его нет в кеше или срок его хранения истек
+     */
+    byte @Nullable [] get(String key);
+
+    /**
+     * Сохранить документ
+     *
+     * @param key ключ документа (отпечаток шаблона и значений тегов)
+     * @param data содержимое документа
+     */
+    void put(String key, byte[] data);
+
+    /**
+     * Очистить кеш
+     */
+    void clear();
+}
@@ -0,0 +1,12 @@
+package io.github.asewhy.interfaces;
+
+import io.github.asewhy.support.ProcessorMetrics;
+
+public interface ProcessorListener {
+    /**
+     * Вызывается по завершении обработки шаблона (в том числе и неудачной, тогда {@link ProcessorMetrics#getError()} не null)
+     *
+     * @param metrics метрики обработки шаблона
+     */
+    void onProcessed(ProcessorMetrics metrics);
+}
@@ -15,4 +15,35 @@ public interface TypeProvider {
         @NotNull Map<String, AccessibleObject> binds,
         @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
     );
+
+    /**
+     * Проверить, поддерживает ли поставщик бинды по пути (например address.city). Биндер проверяет это при бинде,
+     * поэтому поставщик без поддержки путей получает только обычные бинды.
+     *
+     * @return true если поставщик переопределяет {@link TypeProvider#provide(Map, Map, Map, Map, Map, Map)}
+     */
+    default boolean supportsPaths() {
+        return false;
+    }
+
+    /**
+     * Перенести данные из внешнего источника, включая пути биндов по пути (например address.city). По умолчанию
+     * бинды по пути не поддерживаются (см. {@link TypeProvider#supportsPaths()}).
+     *
+     * @param paths список соответствий биндов и членов пути до поля (или метода) бинда
+     */
+    default void provide(
+        @NotNull Map<String, Class<?>> classes,
+        @NotNull Map<String, Class<?>> resultClasses,
+        @NotNull Map<String, List<String>> subspaces,
+        @NotNull Map<String, AccessibleObject> binds,
+        @NotNull Map<String, List<AccessibleObject>> paths,
+        @NotNull Map<String, Map<String, DescriptionEntry>> descriptions
+    ) {
+        if(!paths.isEmpty()) {
+            throw new UnsupportedOperationException("Path binds are not supported by " + getClass().getName() + ".");
+        }
+
+        provide(classes, resultClasses, subspaces, binds, descriptions);
+    }
 }
@@ -5,6 +5,10 @@ import io.github.asewhy.ProcessorDataProvider;
 import io.github.asewhy.ProcessorTypeProvider;
 import io.github.asewhy.base.BaseSequenceTagProcessor;
 import io.github.asewhy.interfaces.DataResolver;
+import io.github.asewhy.raw.TagSource;
+import io.github.asewhy.support.ItemPath;
+import io.github.asewhy.support.ProcessorMetrics;
+import io.github.asewhy.support.ProcessorProfile;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.InvocationTargetException;
@@ -15,6 +19,7 @@ public final class SequenceResolveTagProcessor extends BaseSequenceTagProcessor
     private final ProcessorArgumentResolver resolver;
     private final ProcessorTypeProvider typeProvider;
     private final ProcessorDataProvider dataProvider;
+    private boolean aggregateProfile = false;
 
     /**
      * Regexp обработчик, получает значение тегов из {@link ProcessorArgumentResolver}
@@ -98,6 +103,94 @@ public final class SequenceResolveTagProcessor extends BaseSequenceTagProcessor
         this.resolver.provide(resolver); return this;
     }
 
+    /**
+     * Заранее подготавливает доступ ко всем биндингам поставщика типов
+     */
+    @Override
+    protected void onWarmUp() {
+        this.typeProvider.warmUp();
+    }
+
+    /**
+     * Передает метрики текущей обработки в {@link ProcessorArgumentResolver}, для учета попаданий в кеш
+     *
+     * @param metrics метрики текущей обработки
+     */
+    @Override
+    protected void onRenderStart(ProcessorMetrics metrics) {
+        this.resolver.setMetrics(metrics);
+
+        if(!aggregateProfile && this.resolver.getProfiler() != null) {
+            this.resolver.getProfiler().reset();
+        }
+    }
+
+    /**
+     * Освобождает значения, полученные в ходе обработки (см. {@link ProcessorArgumentResolver#endRender()})
+     *
+     * @param metrics метрики текущей обработки
+     */
+    @Override
+    protected void onRenderEnd(ProcessorMetrics metrics) {
+        this.resolver.endRender();
+    }
+
+    /**
+     * Освобождает значения элементов итерируемого тега, таблица по которому уже отрисована
+     *
+     * @param primaryTag итерируемый тег
+     */
+    @Override
+    protected void onTableRendered(String primaryTag) {
+        this.resolver.release(primaryTag);
+    }
+
+    /**
+     * Сохранять значения тегов основного подпространства между обработками. Значения класса сбрасываются, если
+     * поставщик данных вернул для него другой объект (см. {@link ProcessorArgumentResolver#setRetainedCapacity(int)})
+     *
+     * @param capacity максимальное количество сохраняемых значений, 0 - очищать значения по завершении каждой обработки
+     * @return себя
+     */
+    public SequenceResolveTagProcessor retainValues(int capacity) {
+        this.resolver.setRetainedCapacity(capacity); return this;
+    }
+
+    /**
+     * Включить профилирование получения значений тегов и данных поставщика
+     *
+     * @param aggregate если true, то отчет будет накапливаться между обработками, иначе отчет содержит данные только последней обработки
+     * @return себя
+     */
+    public SequenceResolveTagProcessor enableProfiling(boolean aggregate) {
+        this.aggregateProfile = aggregate;
+        this.resolver.enableProfiling(); return this;
+    }
+
+    /**
+     * Выключить профилирование
+     *
+     * @return себя
+     */
+    public SequenceResolveTagProcessor disableProfiling() {
+        this.resolver.disableProfiling(); return this;
+    }
+
+    /**
+     * Получить отчет профилирования
+     *
+     * @return отчет профилирования, или null если профилирование не включено
+     */
+    public ProcessorProfile getProfile() {
+        var profiler = this.resolver.getProfiler();
+
+        if(profiler != null) {
+            return profiler.getReport();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Получить поддерживаемый обработчиком набор тегов
      *
@@ -151,6 +244,40 @@ public final class SequenceResolveTagProcessor extends BaseSequenceTagProcessor
         }
     }
 
+    /**
+     * Получить значение тега элемента итерируемого тега, в том числе вложенного
+     *
+     * Примерно так это выглядит: lines[0].taxes[1].subKey
+     *
+     * @param item путь до элемента
+     * @param subKey поле получения подтега
+     * @return значение тега
+     */
+    @Override
+    protected String getTag(@NotNull ItemPath item, String subKey) {
+        try {
+            return toString(this.resolver.getIndexedValueOf(item, subKey));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Получить количество элементов вложенного итерируемого тега элемента
+     *
+     * @param item путь до элемента
+     * @param tag тег подпространства элемента
+     * @return количество элементов, или -1 если тег не итерируемый
+     */
+    @Override
+    protected Integer getTableRowCount(ItemPath item, String tag) {
+        try {
+            return this.resolver.getIndexedSizeOf(item, tag);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Получить значение тега по ключу
      *
@@ -166,6 +293,33 @@ public final class SequenceResolveTagProcessor extends BaseSequenceTagProcessor
         }
     }
 
+    /**
+     * Проверить, истинно ли значение тега условия. Ложными считаются null, false, пустые строки и коллекции и ноль.
+     *
+     * @param key тег условия
+     * @return true если блок {@code #key} должен остаться в документе
+     */
+    @Override
+    protected Boolean isConditionTrue(String key) {
+        try {
+            var value = resolver.resolve(key);
+
+            if(value == null) {
+                return false;
+            } else if(value instanceof Boolean) {
+                return (Boolean) value;
+            } else if(value instanceof Collection<?>) {
+                return !((Collection<?>) value).isEmpty();
+            } else if(value instanceof Number) {
+                return ((Number) value).doubleValue() != 0;
+            } else {
+                return !value.toString().isEmpty();
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Проверить, является ли бинд тега итерируемым
      *
@@ -185,6 +339,54 @@ public final class SequenceResolveTagProcessor extends BaseSequenceTagProcessor
      */
     @Override
     protected Integer getTableRowCount(String key) {
+        return getTableRowCount(this.resolver, key);
+    }
+
+    /**
+     * Получить источник значений тегов с отдельным кешем значений (см. {@link ProcessorArgumentResolver#detach()}),
+     * данные получаются из того же поставщика данных
+     *
+     * @param metrics метрики отрисовки
+     * @return источник значений тегов
+     */
+    @Override
+    protected TagSource getDetachedTagSource(ProcessorMetrics metrics) {
+        var resolver = this.resolver.detach();
+
+        resolver.setMetrics(metrics);
+
+        return new TagSource() {
+            @Override
+            public String getTag(String key) {
+                try {
+                    return SequenceResolveTagProcessor.this.toString(resolver.resolve(key));
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public String getTag(String key, Integer index, String subKey) {
+                try {
+                    return SequenceResolveTagProcessor.this.toString(resolver.getIndexedValueOf(key, index, subKey));
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public Integer getTableRowCount(String key) {
+                return SequenceResolveTagProcessor.this.getTableRowCount(resolver, key);
+            }
+
+            @Override
+            public void release(String key) {
+                resolver.release(key);
+            }
+        };
+    }
+
+    private Integer getTableRowCount(ProcessorArgumentResolver resolver, String key) {
         try {
             if(!isIterableTag(key)) {
                 return -1;
@@ -0,0 +1,410 @@
+package io.github.asewhy.raw;
+
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.interfaces.ChunkProducer;
+import io.github.asewhy.support.ProcessorMetrics;
+import io.github.asewhy.support.TagSyntax;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.*;
+
+/**
+ * Скомпилированный шаблон. Может быть сохранен на диск и загружен при следующем запуске, отрисовывается сразу в
+ * архив документа без загрузки шаблона через docx4j.
+ */
+@Getter
+public class CompiledTemplate {
+    /**
+     * Версия формата. При изменении формата ранее сохраненные шаблоны перестают читаться и должны быть перекомпилированы.
+     */
+    public static final short FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x44545043;
+
+    /**
+     * Начальная емкость списков при чтении, количество элементов берется из потока и не должно приводить к выделению
+     * памяти до того, как элементы будут действительно прочитаны
+     */
+    private static final int READ_CAPACITY = 64;
+
+    /**
+     * Максимальная вложенность строк при чтении
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private final String templateDigest;
+    private final String catalogDigest;
+    private final TagSyntax syntax;
+
+    @Getter(AccessLevel.NONE)
+    private final List<Entry> entries;
+
+    @Getter(AccessLevel.NONE)
+    private final List<Segment> document;
+
+    CompiledTemplate(String templateDigest, String catalogDigest, TagSyntax syntax, List<Entry> entries, List<Segment> document) {
+        this.templateDigest = templateDigest;
+        this.catalogDigest = catalogDigest;
+        this.syntax = syntax;
+        this.entries = entries;
+        this.document = document;
+    }
+
+    /**
+     * Отрисовать шаблон
+     *
+     * @param source источник значений тегов
+     * @param output поток документа, не закрывается
+     * @throws ProcessorException если произошла ошибка
+     */
+    public void render(TagSource source, OutputStream output) throws ProcessorException {
+        render(source, output, new ProcessorMetrics(CompiledTemplate.class, false));
+    }
+
+    /**
+     * Отрисовать шаблон
+     *
+     * @param source источник значений тегов
+     * @param output поток документа, не закрывается
+     * @param metrics метрики текущей обработки
+     * @throws ProcessorException если произошла ошибка
+     */
+    public void render(TagSource source, OutputStream output, ProcessorMetrics metrics) throws ProcessorException {
+        try {
+            var cursor = cursor(source, output, metrics);
+
+            while (cursor.advance()) {
+                // Отрисовываем до конца
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Получить производителя документа для записи по частям (например через
+     * {@link io.github.asewhy.support.ChunkedPublisher}), каждый шаг пишет одну часть документа
+     *
+     * @param source источник значений тегов
+     * @param output поток документа, не закрывается
+     * @param metrics метрики текущей обработки
+     * @return производитель документа
+     */
+    public ChunkProducer producer(TagSource source, OutputStream output, ProcessorMetrics metrics) {
+        var cursor = cursor(source, output, metrics);
+
+        return () -> {
+            var result = cursor.advance();
+            cursor.flush();
+            return result;
+        };
+    }
+
+    /**
+     * Начать пошаговую отрисовку шаблона
+     *
+     * @param source источник значений тегов
+     * @param output поток документа, не закрывается
+     * @param metrics метрики текущей обработки
+     * @return курсор отрисовки
+     */
+    RenderCursor cursor(TagSource source, OutputStream output, ProcessorMetrics metrics) {
+        return new RenderCursor(entries, document, syntax, source, metrics, output);
+    }
+
+    /**
+     * Записать скомпилированный шаблон в поток
+     *
+     * @param output поток для записи, не закрывается
+     * @throws IOException если произошла ошибка записи
+     */
+    public void write(OutputStream output) throws IOException {
+        var header = new DataOutputStream(output);
+
+        header.writeInt(MAGIC);
+        header.writeShort(FORMAT_VERSION);
+        header.writeUTF(templateDigest);
+        header.writeUTF(catalogDigest);
+        header.writeUTF(syntax.getOpen());
+        header.writeUTF(syntax.getClose());
+        header.flush();
+
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        var deflated = new DeflaterOutputStream(output, deflater);
+        var body = new DataOutputStream(new BufferedOutputStream(deflated));
+
+        try {
+            body.writeInt(entries.size());
+
+            for(var entry: entries) {
+                writeString(body, entry.name);
+                body.writeShort(entry.method);
+                body.writeInt(entry.data != null ? entry.data.length : -1);
+
+                if(entry.data != null) {
+                    body.write(entry.data);
+                }
+            }
+
+            writeSegments(body, document);
+            body.flush();
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Записать скомпилированный шаблон в файл. Запись идет во временный файл рядом, который затем атомарно
+     * переименовывается, поэтому параллельный читатель никогда не увидит недописанный файл.
+     *
+     * @param path путь до файла
+     * @throws IOException если произошла ошибка записи
+     */
+    public void write(@NotNull Path path) throws IOException {
+        var directory = path.toAbsolutePath().getParent();
+
+        Files.createDirectories(directory);
+
+        var temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+        try {
+            try (var output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                write(output);
+            }
+
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Прочитать скомпилированный шаблон из потока
+     *
+     * @param input поток скомпилированного шаблона
+     * @return скомпилированный шаблон
+     * @throws ProcessorException если поток не является скомпилированным шаблоном, поврежден, или его версия формата
+     * не совпадает с {@link CompiledTemplate#FORMAT_VERSION}
+     */
+    public static @NotNull CompiledTemplate read(InputStream input) throws ProcessorException {
+        try {
+            var header = new DataInputStream(input);
+
+            if(header.readInt() != MAGIC) {
+                throw new ProcessorException("Input is not a compiled template.");
+            }
+
+            var version = header.readShort();
+
+            if(version != FORMAT_VERSION) {
+                throw new ProcessorException("Unsupported compiled template format version " + version + ", expected " + FORMAT_VERSION + ".");
+            }
+
+            var templateDigest = header.readUTF();
+            var catalogDigest = header.readUTF();
+            var syntax = TagSyntax.of(header.readUTF(), header.readUTF());
+            var inflater = new Inflater();
+
+            try {
+                var body = new DataInputStream(new BufferedInputStream(new InflaterInputStream(input, inflater)));
+                var count = readCount(body);
+                var entries = new ArrayList<Entry>(Math.min(count, READ_CAPACITY));
+
+                for(var i = 0; i < count; i++) {
+                    var name = readString(body);
+                    var method = body.readShort();
+                    var length = body.readInt();
+                    var data = (byte[]) null;
+
+                    if(length >= 0) {
+                        data = readBytes(body, length);
+                    } else if(length != -1) {
+                        throw new IOException("Bad length " + length + " of compiled template entry '" + name + "'.");
+                    }
+
+                    entries.add(new Entry(name, method, data));
+                }
+
+                return new CompiledTemplate(templateDigest, catalogDigest, syntax, entries, readSegments(body, 0));
+            } finally {
+                inflater.end();
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Прочитать скомпилированный шаблон из файла
+     *
+     * @param path путь до файла
+     * @return скомпилированный шаблон
+     * @throws ProcessorException если файл не удалось прочитать
+     */
+    public static @NotNull CompiledTemplate read(Path path) throws ProcessorException {
+        try (var input = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(input);
+        } catch (IOException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Получить отпечаток (SHA-256) данных
+     *
+     * @param data данные
+     * @return отпечаток в шестнадцатеричной записи
+     */
+    public static @NotNull String digest(byte[] data) {
+        try {
+            var hash = MessageDigest.getInstance("SHA-256").digest(data);
+            var result = new StringBuilder(hash.length * 2);
+
+            for(var b: hash) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeSegments(DataOutputStream output, @NotNull List<Segment> segments) throws IOException {
+        output.writeInt(segments.size());
+
+        for(var segment: segments) {
+            if(segment instanceof Segment.Literal) {
+                output.writeByte(Segment.LITERAL);
+                writeString(output, ((Segment.Literal) segment).getXml());
+            } else if(segment instanceof Segment.Text) {
+                var text = (Segment.Text) segment;
+
+                output.writeByte(Segment.TEXT);
+                writeString(output, text.getText());
+                output.writeInt(text.getTags().size());
+
+                for(var tag: text.getTags()) {
+                    writeString(output, tag);
+                }
+            } else if(segment instanceof Segment.Row) {
+                var row = (Segment.Row) segment;
+
+                output.writeByte(Segment.ROW);
+                writeString(output, row.getPrimaryTag());
+                writeSegments(output, row.getPrototype());
+            }
+        }
+    }
+
+    private static @NotNull List<Segment> readSegments(@NotNull DataInputStream input, int depth) throws IOException {
+        if(depth > MAX_DEPTH) {
+            throw new IOException("Compiled template rows are nested deeper than " + MAX_DEPTH + ".");
+        }
+
+        var count = readCount(input);
+        var result = new ArrayList<Segment>(Math.min(count, READ_CAPACITY));
+
+        for(var i = 0; i < count; i++) {
+            var kind = input.readByte();
+
+            switch (kind) {
+                case Segment.LITERAL:
+                    result.add(new Segment.Literal(readString(input)));
+                    break;
+                case Segment.TEXT: {
+                    var text = readString(input);
+                    var tagCount = readCount(input);
+                    var tags = new ArrayList<String>(Math.min(tagCount, READ_CAPACITY));
+
+                    for(var j = 0; j < tagCount; j++) {
+                        tags.add(readString(input));
+                    }
+
+                    result.add(new Segment.Text(text, tags));
+                    break;
+                }
+                case Segment.ROW:
+                    result.add(new Segment.Row(readString(input), readSegments(input, depth + 1)));
+                    break;
+                default:
+                    throw new IOException("Unknown compiled template segment " + kind + ".");
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Строки пишутся с длиной в байтах, т.к. {@link DataOutputStream#writeUTF(String)} ограничен 64кб
+     */
+    private static void writeString(@NotNull DataOutputStream output, @NotNull String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull DataInputStream input) throws IOException {
+        return new String(readBytes(input, input.readInt()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Прочитать количество элементов, количество не может быть отрицательным
+     */
+    private static int readCount(@NotNull DataInputStream input) throws IOException {
+        var count = input.readInt();
+
+        if(count < 0) {
+            throw new IOException("Bad element count " + count + ".");
+        }
+
+        return count;
+    }
+
+    /**
+     * Прочитать length байт. Память выделяется по мере чтения ({@link InputStream#readNBytes(int)}), поэтому длина
+     * из поврежденного потока, которая больше оставшихся данных, приводит к ошибке, а не к выделению памяти под всю длину.
+     */
+    private static byte @NotNull [] readBytes(@NotNull DataInputStream input, int length) throws IOException {
+        if(length < 0) {
+            throw new IOException("Bad length " + length + ".");
+        }
+
+        var bytes = input.readNBytes(length);
+
+        if(bytes.length != length) {
+            throw new EOFException("Expected " + length + " bytes, but input has only " + bytes.length + ".");
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Часть архива шаблона, data == null у основной части документа
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Entry {
+        private final String name;
+        private final int method;
+        private final byte[] data;
+    }
+}
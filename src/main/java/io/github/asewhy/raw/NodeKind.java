@@ -0,0 +1,71 @@
+package io.github.asewhy.raw;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Виды узлов основной части документа, в которые спускается обход {@link io.github.asewhy.base.BaseDocxProcessor}.
+ * Обход docx4j спускается только в узлы реализующие ContentAccessor, поэтому, например, содержимое элементов
+ * управления (w:sdt) и исправлений (w:ins) при обработке не учитывается. Здесь повторяется то же поведение.
+ */
+enum NodeKind {
+    ROOT,
+    DOCUMENT,
+    BODY,
+    PARAGRAPH,
+    RUN,
+    TEXT,
+    TABLE,
+    ROW,
+    CELL;
+
+    static final String WORDPROCESSING_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    /**
+     * Получить вид дочернего узла
+     *
+     * @param namespace пространство имен дочернего элемента
+     * @param name локальное имя дочернего элемента
+     * @return вид дочернего узла, или null если в этот узел обход не спускается
+     */
+    @Nullable NodeKind child(String namespace, String name) {
+        if(!WORDPROCESSING_NAMESPACE.equals(namespace)) {
+            return null;
+        }
+
+        switch (this) {
+            case ROOT:
+                return "document".equals(name) ? DOCUMENT : null;
+            case DOCUMENT:
+                return "body".equals(name) ? BODY : null;
+            case BODY:
+            case CELL:
+                switch (name) {
+                    case "p": return PARAGRAPH;
+                    case "tbl": return TABLE;
+                    default: return null;
+                }
+            case PARAGRAPH:
+                switch (name) {
+                    case "r": return RUN;
+                    case "hyperlink":
+                    case "smartTag":
+                    case "fldSimple":
+                    case "customXml": return PARAGRAPH;
+                    default: return null;
+                }
+            case RUN:
+                switch (name) {
+                    case "t":
+                    case "delText":
+                    case "instrText": return TEXT;
+                    default: return null;
+                }
+            case TABLE:
+                return "tr".equals(name) ? ROW : null;
+            case ROW:
+                return "tc".equals(name) ? CELL : null;
+            default:
+                return null;
+        }
+    }
+}
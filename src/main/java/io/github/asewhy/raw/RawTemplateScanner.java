@@ -0,0 +1,376 @@
+package io.github.asewhy.raw;
+
+import io.github.asewhy.ProcessorArgumentResolver;
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.support.ScanResult;
+import io.github.asewhy.support.ScannedRow;
+import io.github.asewhy.support.TagSyntax;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Проверяет шаблон без загрузки через docx4j. Основная часть документа читается потоково прямо из архива,
+ * результат совпадает с {@link io.github.asewhy.base.BaseSequenceTagProcessor#doValidate}.
+ */
+public class RawTemplateScanner {
+    static final String PACKAGE_RELATIONSHIPS = "_rels/.rels";
+    static final String DEFAULT_MAIN_DOCUMENT = "word/document.xml";
+    static final String OFFICE_DOCUMENT = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument";
+
+    static final XMLInputFactory factory = createInputFactory();
+
+    private final Function<String, List<String>> tagNames;
+    private final Predicate<String> iterable;
+    private final TagSyntax syntax;
+
+    /**
+     * Проверяет шаблон без загрузки через docx4j
+     *
+     * @param tagNames функция получения набора тегов для подпространства
+     * @param iterable функция проверки, является ли тег итерируемым
+     */
+    public RawTemplateScanner(Function<String, List<String>> tagNames, Predicate<String> iterable) {
+        this(tagNames, iterable, TagSyntax.PLAIN);
+    }
+
+    /**
+     * Проверяет шаблон без загрузки через docx4j
+     *
+     * @param tagNames функция получения набора тегов для подпространства
+     * @param iterable функция проверки, является ли тег итерируемым
+     * @param syntax синтаксис тегов
+     */
+    public RawTemplateScanner(Function<String, List<String>> tagNames, Predicate<String> iterable, TagSyntax syntax) {
+        this.tagNames = tagNames;
+        this.iterable = iterable;
+        this.syntax = syntax;
+    }
+
+    /**
+     * Проверить шаблон
+     *
+     * @param input поток шаблона
+     * @return используемые теги и итерируемые строки
+     * @throws ProcessorException если шаблон не удалось прочитать, или повторяющийся блок не закрыт
+     */
+    public ScanResult scan(@NotNull InputStream input) throws ProcessorException {
+        try {
+            return scan(input.readAllBytes());
+        } catch (IOException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Проверить шаблон
+     *
+     * @param template содержимое файла шаблона
+     * @return используемые теги и итерируемые строки
+     * @throws ProcessorException если шаблон не удалось прочитать, или повторяющийся блок не закрыт
+     */
+    public ScanResult scan(byte @NotNull [] template) throws ProcessorException {
+        var supportTagNames = syntax.prepare(tagNames.apply(ProcessorTypeProvider.MAIN_SUBSPACE));
+        var foundTags = new HashSet<String>();
+        var rows = new ArrayList<ScannedRow>();
+
+        try (var document = openMainDocument(template)) {
+            var reader = factory.createXMLStreamReader(document);
+
+            try {
+                var stack = new ArrayDeque<NodeKind>();
+                var skip = 0;
+                var tables = 0;
+                var paragraphs = 0;
+                var text = (StringBuilder) null;
+                var paragraphTexts = (List<String>) null;
+                var rowTexts = (List<String>) null;
+                var block = (ScannedRow) null;
+                var blockTagNames = (Collection<String>) null;
+                var blockLevel = 0;
+                var blockDepth = 0;
+
+                stack.push(NodeKind.ROOT);
+
+                while (reader.hasNext()) {
+                    var event = reader.next();
+
+                    if(event == XMLStreamConstants.START_ELEMENT) {
+                        if(skip > 0) {
+                            skip++; continue;
+                        }
+
+                        var kind = stack.peek().child(reader.getNamespaceURI(), reader.getLocalName());
+
+                        if(kind == null) {
+                            skip = 1; continue;
+                        }
+
+                        if(kind == NodeKind.TABLE) {
+                            tables++;
+                        } else if(kind == NodeKind.ROW && tables == 1 && block == null) {
+                            rowTexts = new ArrayList<>();
+                        } else if(kind == NodeKind.PARAGRAPH && paragraphs++ == 0) {
+                            paragraphTexts = new ArrayList<>();
+                        } else if(kind == NodeKind.TEXT) {
+                            text = new StringBuilder();
+                        }
+
+                        stack.push(kind);
+                    } else if(event == XMLStreamConstants.END_ELEMENT) {
+                        if(skip > 0) {
+                            skip--; continue;
+                        }
+
+                        var kind = stack.pop();
+
+                        if(block != null && stack.size() < blockLevel) {
+                            throw new ProcessorException("Repeating block '" + block.getPrimaryTag() + "' is not closed.");
+                        }
+
+                        if(kind == NodeKind.TABLE) {
+                            tables--;
+                        } else if(kind == NodeKind.ROW && tables == 1 && rowTexts != null) {
+                            scanRow(rowTexts, supportTagNames, foundTags, rows);
+                            rowTexts = null;
+                        } else if(kind == NodeKind.PARAGRAPH && --paragraphs == 0) {
+                            //
+                            // Маркер ищется по тексту всего абзаца, т.к. Word может разбить его на несколько фрагментов
+                            //
+                            var marker = getMarker(String.join("", paragraphTexts), supportTagNames);
+
+                            if(marker != null) {
+                                foundTags.add(marker.substring(1));
+                            }
+
+                            if(block != null) {
+                                //
+                                // Повторяющийся блок вне таблиц заполняется только тегами подпространства. Маркеры
+                                // того же тега учитываются только среди соседних узлов, так же как в findBlockEnd
+                                //
+                                for(var value: paragraphTexts) {
+                                    syntax.collect(value, blockTagNames, block.getPrimaryTag(), block.getTags());
+                                }
+
+                                if(marker != null && stack.size() == blockLevel && marker.substring(1).equals(block.getPrimaryTag())) {
+                                    if(marker.charAt(0) != '/') {
+                                        blockDepth++;
+                                    } else if(blockDepth-- == 0) {
+                                        for(var tag: block.getTags()) {
+                                            foundTags.add(ProcessorArgumentResolver.getSubPropertyIndex(tag, block.getPrimaryTag()));
+                                        }
+
+                                        rows.add(block);
+                                        block = null;
+                                    }
+                                }
+                            } else if(tables == 0 && marker != null && marker.charAt(0) == '#' && iterable.test(marker.substring(1))) {
+                                block = new ScannedRow(marker.substring(1), new LinkedHashSet<>());
+                                blockTagNames = syntax.prepare(tagNames.apply(block.getPrimaryTag()));
+                                blockLevel = stack.size();
+                                blockDepth = 0;
+
+                                for(var value: paragraphTexts) {
+                                    syntax.collect(value, blockTagNames, block.getPrimaryTag(), block.getTags());
+                                }
+                            } else if(tables == 0) {
+                                for(var value: paragraphTexts) {
+                                    syntax.collect(value, supportTagNames, null, foundTags);
+                                }
+                            } else if(rowTexts != null) {
+                                rowTexts.addAll(paragraphTexts);
+                            }
+
+                            paragraphTexts = null;
+                        } else if(kind == NodeKind.TEXT) {
+                            paragraphTexts.add(text.toString());
+                            text = null;
+                        }
+                    } else if(text != null && skip == 0 && isCharacters(event)) {
+                        text.append(reader.getText());
+                    }
+                }
+                if(block != null) {
+                    throw new ProcessorException("Repeating block '" + block.getPrimaryTag() + "' is not closed.");
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new ProcessorException(e);
+        }
+
+        return new ScanResult(foundTags, rows);
+    }
+
+    /**
+     * Обработать текст строки таблицы так-же, как это делает {@link io.github.asewhy.base.BaseSequenceTagProcessor#doValidate}
+     *
+     * @param rowTexts текст узлов строки
+     * @param supportTagNames теги основного подпространства
+     * @param foundTags найденные теги
+     * @param rows найденные итерируемые строки
+     */
+    private void scanRow(List<String> rowTexts, Collection<String> supportTagNames, Set<String> foundTags, List<ScannedRow> rows) {
+        var primaryTag = findIterableTag(rowTexts, supportTagNames, iterable, syntax);
+
+        if(primaryTag != null) {
+            var currentSubspace = syntax.prepare(tagNames.apply(primaryTag));
+            var rowTags = new LinkedHashSet<String>();
+
+            for(var textContent: rowTexts) {
+                syntax.collect(textContent, currentSubspace, primaryTag, rowTags);
+            }
+
+            for(var tag: rowTags) {
+                foundTags.add(ProcessorArgumentResolver.getSubPropertyIndex(tag, primaryTag));
+            }
+
+            rows.add(new ScannedRow(primaryTag, rowTags));
+        } else {
+            for(var textContent: rowTexts) {
+                syntax.collect(textContent, supportTagNames, null, foundTags);
+            }
+        }
+    }
+
+    /**
+     * Получить маркер блока по тексту абзаца. Маркеры строк таблиц, как и в
+     * {@link io.github.asewhy.base.BaseSequenceTagProcessor#doValidate}, в найденные теги не попадают
+     *
+     * @param text текст абзаца
+     * @param supportTagNames теги основного подпространства
+     * @return маркер (например #tag), или null если текст не маркер поддерживаемого тега
+     */
+    private @Nullable String getMarker(String text, Collection<String> supportTagNames) {
+        var marker = syntax.marker(text);
+
+        if(marker == null || !supportTagNames.contains(marker.substring(1))) {
+            return null;
+        }
+
+        return marker;
+    }
+
+    /**
+     * Найти тег, по которому строка таблицы является итерируемой
+     *
+     * @param rowTexts текст узлов строки
+     * @param supportTagNames теги основного подпространства
+     * @param iterable функция проверки, является ли тег итерируемым
+     * @param syntax синтаксис тегов
+     * @return тег, или null если строка не итерируемая
+     */
+    static @Nullable String findIterableTag(@NotNull List<String> rowTexts, Collection<String> supportTagNames, Predicate<String> iterable, TagSyntax syntax) {
+        for(var textContent: rowTexts) {
+            var tag = syntax.find(textContent, supportTagNames, null, iterable);
+
+            if(tag != null) {
+                return tag;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isCharacters(int event) {
+        return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE;
+    }
+
+    /**
+     * Открыть основную часть документа из архива шаблона
+     *
+     * @param template содержимое файла шаблона
+     * @return поток основной части документа
+     * @throws IOException если основная часть не найдена
+     */
+    static @NotNull InputStream openMainDocument(byte @NotNull [] template) throws IOException, XMLStreamException {
+        var name = findMainDocumentName(template);
+        var entry = readEntry(template, name);
+
+        if(entry == null) {
+            throw new IOException("Cannot find main document part '" + name + "' in template.");
+        }
+
+        return new ByteArrayInputStream(entry);
+    }
+
+    /**
+     * Найти название основной части документа по связям пакета
+     *
+     * @param template содержимое файла шаблона
+     * @return название записи основной части документа в архиве
+     */
+    static @NotNull String findMainDocumentName(byte @NotNull [] template) throws IOException, XMLStreamException {
+        var relationships = readEntry(template, PACKAGE_RELATIONSHIPS);
+
+        if(relationships == null) {
+            return DEFAULT_MAIN_DOCUMENT;
+        }
+
+        var reader = factory.createXMLStreamReader(new ByteArrayInputStream(relationships));
+
+        try {
+            while (reader.hasNext()) {
+                if(reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())) {
+                    if(OFFICE_DOCUMENT.equals(reader.getAttributeValue(null, "Type"))) {
+                        var target = URI.create("/").resolve(reader.getAttributeValue(null, "Target")).getPath();
+
+                        return target.startsWith("/") ? target.substring(1) : target;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return DEFAULT_MAIN_DOCUMENT;
+    }
+
+    /**
+     * Прочитать запись архива
+     *
+     * @param template содержимое файла шаблона
+     * @param name название записи
+     * @return содержимое записи, или null если запись не найдена
+     */
+    static byte @Nullable [] readEntry(byte @NotNull [] template, String name) throws IOException {
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(template))) {
+            var entry = zip.getNextEntry();
+
+            while (entry != null) {
+                if(entry.getName().equals(name)) {
+                    return zip.readAllBytes();
+                }
+
+                entry = zip.getNextEntry();
+            }
+        }
+
+        return null;
+    }
+
+    private static @NotNull XMLInputFactory createInputFactory() {
+        var result = XMLInputFactory.newFactory();
+
+        result.setProperty(XMLInputFactory.IS_COALESCING, true);
+        result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return result;
+    }
+}
@@ -0,0 +1,206 @@
+package io.github.asewhy.raw;
+
+import io.github.asewhy.support.ProcessorCounter;
+import io.github.asewhy.support.ProcessorMetrics;
+import io.github.asewhy.support.ProcessorPhase;
+import io.github.asewhy.support.TagSyntax;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Пошаговая отрисовка {@link CompiledTemplate}. Каждый шаг пишет в поток одну часть документа (или кусок другой
+ * части архива), поэтому отрисовку можно приостанавливать между шагами.
+ */
+final class RenderCursor {
+    private static final int ENTRY_CHUNK = 64 * 1024;
+
+    private final List<CompiledTemplate.Entry> entries;
+    private final List<Segment> document;
+    private final TagSyntax syntax;
+    private final TagSource source;
+    private final ProcessorMetrics metrics;
+    private final ZipOutputStream zip;
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+    private int entryIndex = 0;
+    private byte[] entryData;
+    private int entryOffset;
+    private Writer writer;
+
+    RenderCursor(List<CompiledTemplate.Entry> entries, List<Segment> document, TagSyntax syntax, TagSource source, ProcessorMetrics metrics, OutputStream output) {
+        this.entries = entries;
+        this.document = document;
+        this.syntax = syntax;
+        this.source = source;
+        this.metrics = metrics;
+        this.zip = new ZipOutputStream(output);
+    }
+
+    /**
+     * Выполнить следующий шаг отрисовки
+     *
+     * @return false, если отрисовка закончена
+     * @throws IOException если произошла ошибка записи
+     */
+    boolean advance() throws IOException {
+        if(writer != null) {
+            advanceDocument();
+            return true;
+        }
+
+        if(entryData != null) {
+            var length = Math.min(ENTRY_CHUNK, entryData.length - entryOffset);
+
+            zip.write(entryData, entryOffset, length);
+            entryOffset += length;
+
+            if(entryOffset == entryData.length) {
+                zip.closeEntry();
+                entryData = null;
+            }
+
+            return true;
+        }
+
+        if(entryIndex < entries.size()) {
+            startEntry(entries.get(entryIndex++));
+            return true;
+        }
+
+        zip.finish();
+
+        return false;
+    }
+
+    /**
+     * Вытолкнуть в поток то, что накоплено в буфере кодировщика основной части документа
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    void flush() throws IOException {
+        if(writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void startEntry(CompiledTemplate.@NotNull Entry entry) throws IOException {
+        var data = entry.getData();
+        var zipEntry = new ZipEntry(entry.getName());
+
+        if(data != null && entry.getMethod() == ZipEntry.STORED) {
+            var crc = new CRC32();
+
+            crc.update(data);
+
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(data.length);
+            zipEntry.setCompressedSize(data.length);
+            zipEntry.setCrc(crc.getValue());
+        }
+
+        zip.putNextEntry(zipEntry);
+
+        if(data == null) {
+            writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            frames.push(new Frame(document, source::getTag, null, 0, 1));
+        } else if(data.length == 0) {
+            zip.closeEntry();
+        } else {
+            entryData = data;
+            entryOffset = 0;
+        }
+    }
+
+    private void advanceDocument() throws IOException {
+        var frame = frames.peek();
+
+        if(frame.position < frame.segments.size()) {
+            var segment = frame.segments.get(frame.position++);
+
+            if(segment instanceof Segment.Literal) {
+                writer.write(((Segment.Literal) segment).getXml());
+            } else if(segment instanceof Segment.Text) {
+                writeText((Segment.Text) segment, frame.primaryTag, frame.values);
+            } else if(segment instanceof Segment.Row) {
+                var row = (Segment.Row) segment;
+                var primaryTag = row.getPrimaryTag();
+                var count = source.getTableRowCount(primaryTag);
+
+                if(count > 0) {
+                    frames.push(new Frame(row.getPrototype(), tag -> source.getTag(primaryTag, 0, tag), primaryTag, 0, count));
+                }
+            }
+
+            return;
+        }
+
+        if(frame.index + 1 < frame.count) {
+            var primaryTag = frame.primaryTag;
+            var index = ++frame.index;
+
+            frame.position = 0;
+            frame.values = tag -> source.getTag(primaryTag, index, tag);
+
+            return;
+        }
+
+        frames.pop();
+
+        if(frame.primaryTag != null) {
+            metrics.count(ProcessorCounter.ROWS_GENERATED, frame.count);
+            source.release(frame.primaryTag);
+        }
+
+        if(frames.isEmpty()) {
+            writer.flush();
+            writer = null;
+            zip.closeEntry();
+        }
+    }
+
+    private void writeText(Segment.@NotNull Text text, String primaryTag, Function<String, String> values) throws IOException {
+        var textContent = syntax.replace(text.getText(), text.getTags(), primaryTag, tag -> {
+            var start = metrics.start();
+            var value = values.apply(tag);
+            metrics.stop(ProcessorPhase.RESOLUTION, start);
+            return value;
+        });
+
+        metrics.count(ProcessorCounter.TAGS_REPLACED, text.getTags().size());
+
+        var escaped = new StringBuilder(textContent.length() + 16);
+        XmlWriter.escape(textContent, false, escaped);
+        writer.append(escaped);
+    }
+
+    /**
+     * Отрисовываемый список частей, для итерируемой строки повторяется count раз
+     */
+    private static final class Frame {
+        private final List<Segment> segments;
+        private final String primaryTag;
+        private final int count;
+        private Function<String, String> values;
+        private int position;
+        private int index;
+
+        private Frame(List<Segment> segments, Function<String, String> values, String primaryTag, int index, int count) {
+            this.segments = segments;
+            this.values = values;
+            this.primaryTag = primaryTag;
+            this.index = index;
+            this.count = count;
+        }
+    }
+}
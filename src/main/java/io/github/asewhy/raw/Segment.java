@@ -0,0 +1,44 @@
+package io.github.asewhy.raw;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Часть скомпилированной основной части документа
+ */
+abstract class Segment {
+    static final byte LITERAL = 1;
+    static final byte TEXT = 2;
+    static final byte ROW = 3;
+
+    /**
+     * Неизменяемый кусок разметки, пишется как есть
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Literal extends Segment {
+        private final String xml;
+    }
+
+    /**
+     * Значение текстового узла (w:t), в котором найдены теги
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Text extends Segment {
+        private final String text;
+        private final List<String> tags;
+    }
+
+    /**
+     * Итерируемая строка таблицы, прототип повторяется по одному разу на каждый элемент коллекции
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Row extends Segment {
+        private final String primaryTag;
+        private final List<Segment> prototype;
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.asewhy.raw;
+
+/**
+ * Источник значений тегов для отрисовки {@link CompiledTemplate}
+ */
+public interface TagSource {
+    /**
+     * Получить значение по тегу key
+     *
+     * @param key тег
+     * @return значение тега
+     */
+    String getTag(String key);
+
+    /**
+     * Получить значение по тегу key и ключу index
+     *
+     * @param key тег
+     * @param index индекс
+     * @param subKey подключ значения полученного по индексу
+     * @return значение тега
+     */
+    String getTag(String key, Integer index, String subKey);
+
+    /**
+     * Получить значение числа строк в таблицу
+     *
+     * @param key ключ по которому нужно получить число строк в таблице
+     * @return число строк в таблице, или -1 если значение по ключу не массив
+     */
+    Integer getTableRowCount(String key);
+
+    /**
+     * Вызывается, когда все строки итерируемого тега key отрисованы
+     *
+     * @param key итерируемый тег
+     */
+    default void release(String key) {
+
+    }
+}
@@ -0,0 +1,351 @@
+package io.github.asewhy.raw;
+
+import io.github.asewhy.ProcessorArgumentResolver;
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.support.TagSyntax;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Компилирует шаблон в {@link CompiledTemplate}. Основная часть документа разбивается на неизменяемую разметку,
+ * текстовые узлы с тегами и прототипы итерируемых строк, остальные части архива сохраняются как есть.
+ */
+public class TemplateCompiler {
+    private final Function<String, List<String>> tagNames;
+    private final Predicate<String> iterable;
+    private final TagSyntax syntax;
+
+    /**
+     * Компилирует шаблон в {@link CompiledTemplate}
+     *
+     * @param tagNames функция получения набора тегов для подпространства
+     * @param iterable функция проверки, является ли тег итерируемым
+     */
+    public TemplateCompiler(Function<String, List<String>> tagNames, Predicate<String> iterable) {
+        this(tagNames, iterable, TagSyntax.PLAIN);
+    }
+
+    /**
+     * Компилирует шаблон в {@link CompiledTemplate}
+     *
+     * @param tagNames функция получения набора тегов для подпространства
+     * @param iterable функция проверки, является ли тег итерируемым
+     * @param syntax синтаксис тегов
+     */
+    public TemplateCompiler(Function<String, List<String>> tagNames, Predicate<String> iterable, TagSyntax syntax) {
+        this.tagNames = tagNames;
+        this.iterable = iterable;
+        this.syntax = syntax;
+    }
+
+    /**
+     * Скомпилировать шаблон
+     *
+     * @param template содержимое файла шаблона
+     * @return скомпилированный шаблон
+     * @throws ProcessorException если шаблон не удалось прочитать, или он содержит условные блоки
+     */
+    public CompiledTemplate compile(byte @NotNull [] template) throws ProcessorException {
+        try {
+            var mainDocumentName = RawTemplateScanner.findMainDocumentName(template);
+            var entries = new ArrayList<CompiledTemplate.Entry>();
+            var document = (List<Segment>) null;
+
+            try (var zip = new ZipInputStream(new ByteArrayInputStream(template))) {
+                var entry = zip.getNextEntry();
+
+                while (entry != null) {
+                    if(entry.getName().equals(mainDocumentName)) {
+                        document = compileDocument(zip.readAllBytes());
+                        entries.add(new CompiledTemplate.Entry(entry.getName(), entry.getMethod(), null));
+                    } else {
+                        entries.add(new CompiledTemplate.Entry(entry.getName(), entry.getMethod(), zip.readAllBytes()));
+                    }
+
+                    entry = zip.getNextEntry();
+                }
+            }
+
+            if(document == null) {
+                throw new ProcessorException("Cannot find main document part '" + mainDocumentName + "' in template.");
+            }
+
+            return new CompiledTemplate(CompiledTemplate.digest(template), getCatalogDigest(), syntax, entries, document);
+        } catch (IOException | XMLStreamException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Получить отпечаток набора тегов. Скомпилированный шаблон зависит от набора тегов, от того, какие из них
+     * итерируемые, и от синтаксиса тегов, поэтому при изменении биндингов ранее скомпилированные шаблоны устаревают.
+     *
+     * @return отпечаток набора тегов
+     */
+    public String getCatalogDigest() {
+        var catalog = new StringBuilder().append(CompiledTemplate.FORMAT_VERSION).append('\n');
+
+        if(syntax != TagSyntax.PLAIN) {
+            catalog.append(syntax.getOpen()).append(' ').append(syntax.getClose()).append('\n');
+        }
+
+        for(var tag: tagNames.apply(ProcessorTypeProvider.MAIN_SUBSPACE)) {
+            catalog.append(tag);
+
+            if(iterable.test(tag)) {
+                catalog.append('*');
+
+                for(var subTag: tagNames.apply(tag)) {
+                    catalog.append(' ').append(subTag);
+                }
+            }
+
+            catalog.append('\n');
+        }
+
+        return CompiledTemplate.digest(catalog.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Скомпилировать основную часть документа
+     *
+     * @param xml разметка основной части документа
+     * @return части основной части документа
+     * @throws ProcessorException если шаблон содержит условные блоки или вложенные итерируемые теги
+     */
+    private @NotNull List<Segment> compileDocument(byte[] xml) throws XMLStreamException, ProcessorException {
+        var supportTagNames = syntax.prepare(tagNames.apply(ProcessorTypeProvider.MAIN_SUBSPACE));
+        var reader = RawTemplateScanner.factory.createXMLStreamReader(new ByteArrayInputStream(xml));
+        var main = new SegmentBuilder();
+
+        main.literal.append(XmlWriter.DECLARATION);
+
+        try {
+            var stack = new ArrayDeque<NodeKind>();
+            var skip = 0;
+            var tables = 0;
+            var paragraphs = 0;
+            var text = (StringBuilder) null;
+            var paragraphText = (StringBuilder) null;
+            var row = (SegmentBuilder) null;
+            var rowTexts = (List<String>) null;
+
+            stack.push(NodeKind.ROOT);
+
+            while (reader.hasNext()) {
+                var event = reader.next();
+                var out = row != null ? row : main;
+
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        if(skip > 0) {
+                            skip++;
+                        } else {
+                            var kind = stack.peek().child(reader.getNamespaceURI(), reader.getLocalName());
+
+                            if(kind == null) {
+                                skip = 1;
+                            } else {
+                                if(kind == NodeKind.TABLE) {
+                                    tables++;
+                                } else if(kind == NodeKind.ROW && tables == 1) {
+                                    out = row = new SegmentBuilder();
+                                    rowTexts = new ArrayList<>();
+                                } else if(kind == NodeKind.PARAGRAPH && paragraphs++ == 0) {
+                                    paragraphText = new StringBuilder();
+                                } else if(kind == NodeKind.TEXT) {
+                                    text = new StringBuilder();
+                                }
+
+                                stack.push(kind);
+                            }
+                        }
+
+                        XmlWriter.writeStartElement(reader, out.literal);
+                        break;
+                    }
+                    case XMLStreamConstants.END_ELEMENT: {
+                        if(skip > 0) {
+                            skip--;
+                            XmlWriter.writeEndElement(reader, out.literal);
+                            break;
+                        }
+
+                        var kind = stack.pop();
+
+                        if(kind == NodeKind.PARAGRAPH && --paragraphs == 0) {
+                            //
+                            // Маркер ищется по тексту всего абзаца, т.к. Word может разбить его на несколько фрагментов
+                            //
+                            requireNoMarker(paragraphText.toString(), supportTagNames);
+                            paragraphText = null;
+                        } else if(kind == NodeKind.TEXT) {
+                            var value = text.toString();
+
+                            paragraphText.append(value);
+
+                            if(tables == 0) {
+                                out.text(value, findTags(value, supportTagNames, null));
+                            } else if(row != null) {
+                                rowTexts.add(value);
+                                out.pending(value);
+                            } else {
+                                XmlWriter.escape(value, false, out.literal);
+                            }
+
+                            text = null;
+                        }
+
+                        XmlWriter.writeEndElement(reader, out.literal);
+
+                        if(kind == NodeKind.TABLE) {
+                            tables--;
+                        } else if(kind == NodeKind.ROW && tables == 1) {
+                            requireNoMarker(String.join("", rowTexts), supportTagNames);
+
+                            var primaryTag = RawTemplateScanner.findIterableTag(rowTexts, supportTagNames, iterable, syntax);
+                            var rowTagNames = primaryTag != null ? syntax.prepare(tagNames.apply(primaryTag)) : supportTagNames;
+                            var segments = new SegmentBuilder();
+
+                            for(var segment: row.finish()) {
+                                if(segment instanceof Segment.Text) {
+                                    var value = ((Segment.Text) segment).getText();
+                                    var tags = findTags(value, rowTagNames, primaryTag);
+
+                                    for(var tag: tags) {
+                                        if(primaryTag != null && iterable.test(ProcessorArgumentResolver.getSubPropertyIndex(primaryTag, tag))) {
+                                            throw new ProcessorException("Nested iterable '" + tag + "' is not supported by compiled templates.");
+                                        }
+                                    }
+
+                                    segments.text(value, tags);
+                                } else {
+                                    segments.append(segment);
+                                }
+                            }
+
+                            if(primaryTag != null) {
+                                main.append(new Segment.Row(primaryTag, segments.finish()));
+                            } else {
+                                for(var segment: segments.finish()) {
+                                    main.append(segment);
+                                }
+                            }
+
+                            row = null;
+                            rowTexts = null;
+                        }
+
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE: {
+                        if(text != null && skip == 0) {
+                            text.append(reader.getText());
+                        } else {
+                            XmlWriter.escape(reader.getText(), false, out.literal);
+                        }
+
+                        break;
+                    }
+                    case XMLStreamConstants.COMMENT: {
+                        out.literal.append("<!--").append(reader.getText()).append("-->");
+                        break;
+                    }
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION: {
+                        out.literal.append("<?").append(reader.getPITarget());
+
+                        if(reader.getPIData() != null && !reader.getPIData().isEmpty()) {
+                            out.literal.append(' ').append(reader.getPIData());
+                        }
+
+                        out.literal.append("?>");
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return main.finish();
+    }
+
+    private @NotNull List<String> findTags(String textContent, Collection<String> supportTagNames, String scope) {
+        var result = new ArrayList<String>();
+        syntax.collect(textContent, supportTagNames, scope, result);
+        return result;
+    }
+
+    /**
+     * Проверить, что абзац или строка таблицы не является маркером блока, блоки скомпилированными шаблонами
+     * не поддерживаются
+     *
+     * @param text текст абзаца или строки
+     * @param supportTagNames теги основного подпространства
+     * @throws ProcessorException если текст является маркером блока
+     */
+    private void requireNoMarker(String text, Collection<String> supportTagNames) throws ProcessorException {
+        var marker = syntax.marker(text);
+
+        if(marker != null && supportTagNames.contains(marker.substring(1))) {
+            throw new ProcessorException("Conditional block '" + marker.substring(1) + "' is not supported by compiled templates.");
+        }
+    }
+
+    /**
+     * Собирает список частей документа, объединяя соседнюю неизменяемую разметку
+     */
+    private static final class SegmentBuilder {
+        private final StringBuilder literal = new StringBuilder();
+        private final List<Segment> segments = new ArrayList<>();
+
+        private void flush() {
+            if(literal.length() > 0) {
+                segments.add(new Segment.Literal(literal.toString()));
+                literal.setLength(0);
+            }
+        }
+
+        private void text(String value, @NotNull List<String> tags) {
+            if(tags.isEmpty()) {
+                XmlWriter.escape(value, false, literal);
+            } else {
+                flush();
+                segments.add(new Segment.Text(value, tags));
+            }
+        }
+
+        private void pending(String value) {
+            flush();
+            segments.add(new Segment.Text(value, List.of()));
+        }
+
+        private void append(Segment segment) {
+            if(segment instanceof Segment.Literal) {
+                literal.append(((Segment.Literal) segment).getXml());
+            } else {
+                flush();
+                segments.add(segment);
+            }
+        }
+
+        private List<Segment> finish() {
+            flush();
+            return segments;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.asewhy.raw;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Запись событий {@link XMLStreamReader} обратно в разметку
+ */
+final class XmlWriter {
+    static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\r\n";
+
+    private XmlWriter() {
+
+    }
+
+    /**
+     * Записать открывающий тег текущего элемента
+     *
+     * @param reader читатель, стоящий на START_ELEMENT
+     * @param out буфер для записи
+     */
+    static void writeStartElement(@NotNull XMLStreamReader reader, @NotNull StringBuilder out) {
+        out.append('<');
+        writeName(reader.getPrefix(), reader.getLocalName(), out);
+
+        for(var i = 0; i < reader.getNamespaceCount(); i++) {
+            var prefix = reader.getNamespacePrefix(i);
+
+            out.append(" xmlns");
+
+            if(prefix != null && !prefix.isEmpty()) {
+                out.append(':').append(prefix);
+            }
+
+            out.append("=\"");
+            escape(reader.getNamespaceURI(i), true, out);
+            out.append('"');
+        }
+
+        for(var i = 0; i < reader.getAttributeCount(); i++) {
+            out.append(' ');
+            writeName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i), out);
+            out.append("=\"");
+            escape(reader.getAttributeValue(i), true, out);
+            out.append('"');
+        }
+
+        out.append('>');
+    }
+
+    /**
+     * Записать закрывающий тег текущего элемента
+     *
+     * @param reader читатель, стоящий на END_ELEMENT
+     * @param out буфер для записи
+     */
+    static void writeEndElement(@NotNull XMLStreamReader reader, @NotNull StringBuilder out) {
+        out.append("</");
+        writeName(reader.getPrefix(), reader.getLocalName(), out);
+        out.append('>');
+    }
+
+    /**
+     * Экранировать текст
+     *
+     * @param value текст
+     * @param attribute true если текст является значением атрибута
+     * @param out буфер для записи
+     */
+    static void escape(@NotNull String value, boolean attribute, @NotNull StringBuilder out) {
+        for(var i = 0; i < value.length(); i++) {
+            var current = value.charAt(i);
+
+            switch (current) {
+                case '&': out.append("&amp;"); break;
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '"':
+                    if(attribute) {
+                        out.append("&quot;");
+                    } else {
+                        out.append(current);
+                    }
+                    break;
+                default: out.append(current);
+            }
+        }
+    }
+
+    private static void writeName(String prefix, String name, StringBuilder out) {
+        if(prefix != null && !prefix.isEmpty()) {
+            out.append(prefix).append(':');
+        }
+
+        out.append(name);
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.ProcessorArgumentResolver;
+import io.github.asewhy.base.BaseDocxProcessor;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.interfaces.BatchDataResolver;
+import io.github.asewhy.processors.SequenceResolveTagProcessor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Пакетная обработка шаблона для многих ключей (например для многих клиентов). Ожидающие обработки группируются
+ * по {@link BatchRenderer#batchSize}, для каждой группы каждый {@link BatchDataResolver} вызывается один раз со всеми
+ * ключами группы, поэтому количество обращений к хранилищу не зависит от количества обработок в группе.
+ * <p>
+ * Каждая обработка получает дочерний набор данных (см. {@link ProcessorArgumentResolver#child()}), в который
+ * поставлены данные ее ключа, общие данные берутся из родительского набора. Если поставщик не вернул данные ключа,
+ * то данные этого класса берутся из родительского набора. Если поставщик выбросил исключение, то обработки его группы
+ * не выполняются и ошибка сообщается вместе с ошибками остальных обработок. Не потокобезопасен.
+ *
+ * @param <K> тип ключа
+ */
+public class BatchRenderer<K> {
+    private final ProcessorArgumentResolver resolver;
+    private final Function<ProcessorArgumentResolver, ? extends BaseDocxProcessor> factory;
+    private final Map<Class<?>, BatchDataResolver<K, ?>> resolvers = new LinkedHashMap<>();
+    private final List<PendingRender<K>> pending = new ArrayList<>();
+
+    /**
+     * Сколько обработок получают данные одним вызовом поставщика
+     */
+    @Getter
+    private int batchSize = 100;
+
+    /**
+     * Пакетная обработка обработчиком {@link SequenceResolveTagProcessor}
+     *
+     * @param resolver общий набор данных, его поставщик типов используется всеми обработками
+     */
+    public BatchRenderer(@NotNull ProcessorArgumentResolver resolver) {
+        this(resolver, SequenceResolveTagProcessor::new);
+    }
+
+    /**
+     * Пакетная обработка
+     *
+     * @param resolver общий набор данных, его поставщик типов используется всеми обработками
+     * @param factory создает обработчик для набора данных одной обработки
+     */
+    public BatchRenderer(@NotNull ProcessorArgumentResolver resolver, @NotNull Function<ProcessorArgumentResolver, ? extends BaseDocxProcessor> factory) {
+        this.resolver = resolver;
+        this.factory = factory;
+    }
+
+    /**
+     * Поставлять данные класса clazz пакетно
+     *
+     * @param clazz класс, под которым данные поставляются обработке
+     * @param resolver поставщик данных по ключам
+     * @param <T> тип данных
+     * @return себя
+     */
+    public <T> BatchRenderer<K> provide(@NotNull Class<T> clazz, @NotNull BatchDataResolver<K, T> resolver) {
+        this.resolvers.put(clazz, resolver); return this;
+    }
+
+    /**
+     * Добавить ожидающую обработку
+     *
+     * @param key ключ данных обработки
+     * @param output поток выхода документа
+     * @return себя
+     */
+    public BatchRenderer<K> add(@NotNull K key, @NotNull OutputStream output) {
+        this.pending.add(new PendingRender<>(key, output)); return this;
+    }
+
+    /**
+     * Установить, сколько обработок получают данные одним вызовом поставщика
+     *
+     * @param batchSize размер группы
+     */
+    public void setBatchSize(int batchSize) {
+        if(batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Получить количество ожидающих обработок
+     *
+     * @return количество обработок
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Обработать шаблон для всех ожидающих обработок
+     *
+     * @param template содержимое шаблона
+     * @throws ProcessorException если хотя бы одна обработка или получение данных группы завершились с ошибкой
+     * (остальные ошибки добавлены как подавленные)
+     */
+    public void render(byte @NotNull [] template) throws ProcessorException {
+        render((processor, output) -> processor.doProcess(new ByteArrayInputStream(template), output));
+    }
+
+    /**
+     * Обработать шаблон для всех ожидающих обработок, копии шаблона получаются из прототипа
+     *
+     * @param prototype прототип шаблона
+     * @throws ProcessorException если хотя бы одна обработка или получение данных группы завершились с ошибкой
+     * (остальные ошибки добавлены как подавленные)
+     */
+    public void render(@NotNull TemplatePrototype prototype) throws ProcessorException {
+        render((processor, output) -> processor.doProcess(prototype, output));
+    }
+
+    private void render(RenderAction action) throws ProcessorException {
+        var renders = new ArrayList<>(pending);
+        var error = (ProcessorException) null;
+
+        pending.clear();
+
+        for(var from = 0; from < renders.size(); from += batchSize) {
+            var batch = renders.subList(from, Math.min(from + batchSize, renders.size()));
+            var data = (Map<Class<?>, Map<K, ?>>) null;
+
+            try {
+                data = fetch(batch);
+            } catch (RuntimeException e) {
+                error = addError(error, new ProcessorException(e)); continue;
+            }
+
+            for(var render: batch) {
+                var child = resolver.child();
+
+                for(var entry: data.entrySet()) {
+                    var values = entry.getValue();
+
+                    if(values.containsKey(render.key)) {
+                        child.getDataProvider().provide(entry.getKey(), values.get(render.key));
+                    }
+                }
+
+                try {
+                    action.run(factory.apply(child), render.output);
+                } catch (ProcessorException | RuntimeException e) {
+                    error = addError(error, e);
+                }
+            }
+        }
+
+        if(error != null) {
+            throw error;
+        }
+    }
+
+    private static @NotNull ProcessorException addError(ProcessorException error, Exception e) {
+        if(error == null) {
+            return e instanceof ProcessorException ? (ProcessorException) e : new ProcessorException(e);
+        }
+
+        error.addSuppressed(e);
+
+        return error;
+    }
+
+    /**
+     * Получить данные всех поставщиков для группы обработок, каждый поставщик вызывается один раз
+     *
+     * @param batch группа обработок
+     * @return данные по классам и ключам
+     */
+    private @NotNull Map<Class<?>, Map<K, ?>> fetch(@NotNull List<PendingRender<K>> batch) {
+        var keys = new LinkedHashSet<K>();
+        var result = new LinkedHashMap<Class<?>, Map<K, ?>>();
+
+        for(var render: batch) {
+            keys.add(render.key);
+        }
+
+        for(var entry: resolvers.entrySet()) {
+            var values = entry.getValue().resolve(Collections.unmodifiableSet(keys));
+
+            result.put(entry.getKey(), values != null ? values : Map.of());
+        }
+
+        return result;
+    }
+
+    @AllArgsConstructor
+    private static final class PendingRender<K> {
+        private final K key;
+        private final OutputStream output;
+    }
+
+    @FunctionalInterface
+    private interface RenderAction {
+        void run(BaseDocxProcessor processor, OutputStream output) throws ProcessorException;
+    }
+}
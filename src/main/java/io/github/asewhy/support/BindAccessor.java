@@ -0,0 +1,223 @@
+package io.github.asewhy.support;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Подготовленный доступ к полю или методу бинда. Доступ открывается один раз при создании, значение получается
+ * через {@link MethodHandle}, без проверок доступа на каждый вызов.
+ *
+ * Бинд по пути (например address.city) собирается в цепочку: доступ к последнему члену пути получает объект
+ * от доступа к предыдущим членам (owner). Если промежуточный объект null, то и значение null.
+ *
+ * Доступ по ключу ({@link BindAccessor#key(String)}) получает значение из {@link Map} без рефлексии, так
+ * подключаются источники данных в виде карт и деревьев json.
+ */
+public final class BindAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final Object NULL = new Object();
+
+    @Getter
+    private final AccessibleObject member;
+
+    @Getter
+    private final boolean fieldAccessor;
+
+    @Getter
+    private final boolean staticAccessor;
+
+    private final MethodHandle handle;
+
+    /**
+     * Доступ к объекту, которому принадлежит член, если бинд по пути, иначе null
+     */
+    @Getter
+    private final BindAccessor owner;
+
+    /**
+     * Ключ значения в карте, если это доступ по ключу, иначе null
+     */
+    @Getter
+    private final String key;
+
+    private final String name;
+
+    private BindAccessor(AccessibleObject member, boolean fieldAccessor, boolean staticAccessor, MethodHandle handle, BindAccessor owner) {
+        this(member, null, fieldAccessor, staticAccessor, handle, owner);
+    }
+
+    private BindAccessor(AccessibleObject member, String key, boolean fieldAccessor, boolean staticAccessor, MethodHandle handle, BindAccessor owner) {
+        this.member = member;
+        this.key = key;
+        this.fieldAccessor = fieldAccessor;
+        this.staticAccessor = staticAccessor;
+        this.handle = handle;
+        this.owner = owner;
+        var name = key != null ? key : ((Member) member).getName();
+
+        this.name = owner != null ? owner.name + "." + name : name;
+    }
+
+    /**
+     * Подготовить доступ к полю или методу
+     *
+     * @param member поле или метод без параметров
+     * @return подготовленный доступ, или null если member не поле и не метод
+     * @throws IllegalArgumentException если метод принимает параметры
+     */
+    public static @Nullable BindAccessor of(AccessibleObject member) {
+        return create(null, member);
+    }
+
+    /**
+     * Подготовить доступ к значению карты по ключу, или по пути ключей через точку (например address.city),
+     * каждый следующий ключ берется из карты, полученной по предыдущему
+     *
+     * @param path ключ или путь ключей
+     * @return подготовленный доступ
+     */
+    public static @NotNull BindAccessor key(@NotNull String path) {
+        var owner = (BindAccessor) null;
+
+        for(var key: path.split("\\.")) {
+            owner = new BindAccessor(null, key, true, false, null, owner);
+        }
+
+        return owner;
+    }
+
+    /**
+     * Подготовить доступ к последнему члену пути
+     *
+     * @param path члены пути до member (например address для address.city), пустой для обычного бинда
+     * @param member поле или метод без параметров
+     * @return подготовленный доступ, или null если член пути не поле и не метод
+     * @throws IllegalArgumentException если метод пути принимает параметры
+     */
+    public static @Nullable BindAccessor of(@NotNull List<AccessibleObject> path, AccessibleObject member) {
+        var owner = (BindAccessor) null;
+
+        for(var element: path) {
+            owner = create(owner, element);
+
+            if(owner == null) {
+                return null;
+            }
+        }
+
+        return create(owner, member);
+    }
+
+    private static @Nullable BindAccessor create(@Nullable BindAccessor owner, AccessibleObject member) {
+        if(!(member instanceof Field) && !(member instanceof Method)) {
+            return null;
+        }
+
+        if(member instanceof Method && ((Method) member).getParameterCount() > 0) {
+            throw new IllegalArgumentException("Method '" + ((Method) member).getName() + "' of " + ((Method) member).getDeclaringClass().getName() + " takes parameters and cannot be bound.");
+        }
+
+        var fieldAccessor = member instanceof Field;
+        var staticAccessor = Modifier.isStatic(((Member) member).getModifiers());
+
+        if(staticAccessor) {
+            return new BindAccessor(member, fieldAccessor, true, null, owner);
+        }
+
+        try {
+            member.setAccessible(true);
+
+            var lookup = MethodHandles.lookup();
+            var handle = fieldAccessor ? lookup.unreflectGetter((Field) member) : lookup.unreflect((Method) member);
+
+            return new BindAccessor(member, fieldAccessor, false, handle.asType(GETTER_TYPE), owner);
+        } catch (IllegalAccessException | RuntimeException e) {
+            //
+            // Доступ открыть нельзя (например поле в закрытом модуле), такой бинд всегда возвращает null
+            //
+            return new BindAccessor(member, fieldAccessor, false, null, owner);
+        }
+    }
+
+    /**
+     * Получить значение поля или результат вызова метода
+     *
+     * @param data объект, от которого нужно получить значение (для бинда по пути - объект начала пути)
+     * @return значение, или null если data или промежуточный объект null или доступ получить нельзя
+     * @throws IllegalArgumentException если data не принадлежит классу поля или метода
+     * @throws InvocationTargetException если метод выбросил исключение
+     */
+    public @Nullable Object get(Object data) throws InvocationTargetException {
+        return invoke(owner != null ? owner.get(data) : data);
+    }
+
+    /**
+     * Получить значение поля или результат вызова метода. Промежуточные объекты пути берутся из intermediates
+     * и сохраняются в него, поэтому бинды с общим началом пути (address.city и address.street) получают его один раз.
+     *
+     * @param data объект, от которого нужно получить значение (для бинда по пути - объект начала пути)
+     * @param intermediates промежуточные объекты путей, полученные от data, по пути до них
+     * @return значение, или null если data или промежуточный объект null или доступ получить нельзя
+     * @throws IllegalArgumentException если data не принадлежит классу поля или метода
+     * @throws InvocationTargetException если метод выбросил исключение
+     */
+    public @Nullable Object get(Object data, @NotNull Map<String, Object> intermediates) throws InvocationTargetException {
+        if(owner == null) {
+            return invoke(data);
+        }
+
+        var path = owner.name;
+        var target = intermediates.get(path);
+
+        if(target == null) {
+            target = owner.get(data, intermediates);
+            intermediates.put(path, target != null ? target : NULL);
+        }
+
+        return target != NULL ? invoke(target) : null;
+    }
+
+    private @Nullable Object invoke(Object data) throws InvocationTargetException {
+        if(key != null) {
+            return data instanceof Map<?, ?> ? ((Map<?, ?>) data).get(key) : null;
+        }
+
+        if(data == null || handle == null) {
+            return null;
+        }
+
+        if(!((Member) member).getDeclaringClass().isInstance(data)) {
+            throw new IllegalArgumentException("Cannot get '" + getName() + "' of " + data.getClass().getName());
+        }
+
+        try {
+            return (Object) handle.invokeExact(data);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e, "Cannot get '" + getName() + "' of " + data.getClass().getName());
+        }
+    }
+
+    /**
+     * Получить название поля, метода или ключа, для бинда по пути - путь через точку
+     *
+     * @return название
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+}
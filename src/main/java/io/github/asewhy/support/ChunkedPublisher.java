@@ -0,0 +1,196 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.interfaces.ChunkProducer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Издатель документа по частям. Документ пишется только тогда, когда подписчик запросил следующие части, поэтому
+ * медленный подписчик не занимает поток: пока спроса нет, запись приостановлена. Запись выполняется в executor,
+ * части отдаются размером не больше chunkSize. Поддерживается один подписчик.
+ */
+public class ChunkedPublisher implements Flow.Publisher<ByteBuffer> {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final Function<OutputStream, ChunkProducer> factory;
+    private final Executor executor;
+    private final int chunkSize;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Издатель документа по частям
+     *
+     * @param factory функция создания производителя документа для переданного потока, вызывается при первом запросе
+     * @param executor исполнитель, в котором пишется документ
+     * @param chunkSize размер части документа в байтах
+     */
+    public ChunkedPublisher(Function<OutputStream, ChunkProducer> factory, Executor executor, int chunkSize) {
+        this.factory = factory;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber);
+
+        if(!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+
+                }
+
+                @Override
+                public void cancel() {
+
+                }
+            });
+            subscriber.onError(new IllegalStateException("Publisher allows only one subscriber."));
+            return;
+        }
+
+        subscriber.onSubscribe(new ChunkSubscription(subscriber));
+    }
+
+    private final class ChunkSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private volatile boolean cancelled;
+        private volatile Throwable invalid;
+
+        //
+        // Дальше поля используются только внутри run, который никогда не выполняется параллельно
+        //
+        private ChunkProducer producer;
+        private boolean finished;
+        private boolean done;
+        private byte[] pending;
+        private int pendingOffset;
+
+        private ChunkSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                invalid = new IllegalArgumentException("Requested " + n + " chunks, request must be positive.");
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if(wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            var missed = 1;
+
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if(done) {
+                return;
+            }
+
+            try {
+                while (!cancelled && invalid == null && demand.get() > 0) {
+                    var chunk = nextChunk();
+
+                    if(chunk == null) {
+                        finish(null, true);
+                        return;
+                    }
+
+                    demand.decrementAndGet();
+                    subscriber.onNext(chunk);
+                }
+
+                if(cancelled) {
+                    finish(new CancellationException("Subscription cancelled."), false);
+                } else if(invalid != null) {
+                    finish(invalid, true);
+                }
+            } catch (Throwable e) {
+                finish(e, true);
+            }
+        }
+
+        private ByteBuffer nextChunk() throws Exception {
+            if(pending == null || pendingOffset == pending.length) {
+                if(finished) {
+                    return null;
+                }
+
+                if(producer == null) {
+                    producer = factory.apply(buffer);
+                }
+
+                while (!finished && buffer.size() < chunkSize) {
+                    finished = !producer.produce();
+                }
+
+                pending = buffer.toByteArray();
+                pendingOffset = 0;
+                buffer.reset();
+
+                if(pending.length == 0) {
+                    return null;
+                }
+            }
+
+            var length = Math.min(chunkSize, pending.length - pendingOffset);
+            var result = ByteBuffer.wrap(pending, pendingOffset, length).slice();
+
+            pendingOffset += length;
+
+            return result;
+        }
+
+        private void finish(Throwable error, boolean signal) {
+            done = true;
+
+            if(producer != null) {
+                producer.close(error);
+            }
+
+            if(signal) {
+                if(error == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(error);
+                }
+            }
+        }
+    }
+}
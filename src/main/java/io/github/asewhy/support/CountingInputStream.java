@@ -0,0 +1,49 @@
+package io.github.asewhy.support;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Поток, считающий количество прочитанных байт
+ */
+@Getter
+public class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        var result = super.read();
+
+        if(result != -1) {
+            count++;
+        }
+
+        return result;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        var result = super.read(b, off, len);
+
+        if(result > 0) {
+            count += result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var result = super.skip(n);
+        count += result;
+        return result;
+    }
+}
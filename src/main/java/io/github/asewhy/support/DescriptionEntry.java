@@ -5,7 +5,6 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 @Getter
-@Setter
 @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
 public class DescriptionEntry {
     private final String type = "description";
@@ -0,0 +1,186 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.interfaces.OutputCache;
+import io.github.asewhy.raw.CompiledTemplate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Кеш готовых документов на локальном диске. Каждый документ хранится в отдельном файле, в начале которого записано
+ * время создания (для ttl), а время изменения файла обновляется при каждом обращении (для вытеснения давно
+ * не использованных документов, когда суммарный размер превышает ограничение).
+ */
+public class DiskOutputCache implements OutputCache {
+    private static final String SUFFIX = ".cache";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private long size = -1;
+
+    /**
+     * Кеш готовых документов на локальном диске
+     *
+     * @param directory директория кеша
+     * @param maxBytes максимальный суммарный размер документов в байтах
+     * @param ttl срок хранения документа
+     */
+    public DiskOutputCache(Path directory, long maxBytes, @NotNull Duration ttl) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    @Override
+    public byte @Nullable [] get(String key) {
+        var path = getPath(key);
+
+        try {
+            var content = Files.readAllBytes(path);
+            var created = ByteBuffer.wrap(content, 0, Long.BYTES).getLong();
+
+            if(System.currentTimeMillis() - created > ttlMillis) {
+                remove(path); return null;
+            }
+
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+
+            var data = new byte[content.length - Long.BYTES];
+            System.arraycopy(content, Long.BYTES, data, 0, data.length);
+            return data;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            remove(path); return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, byte @NotNull [] data) {
+        if(data.length > maxBytes) {
+            return;
+        }
+
+        var path = getPath(key);
+
+        try {
+            Files.createDirectories(directory);
+
+            var temp = Files.createTempFile(directory, "output", ".tmp");
+
+            try {
+                try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    output.writeLong(System.currentTimeMillis());
+                    output.write(data);
+                }
+
+                var previous = Files.exists(path) ? Files.size(path) : 0;
+
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                if(size >= 0) {
+                    size += data.length + Long.BYTES - previous;
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            evict();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        for(var file: listFiles()) {
+            delete(file);
+        }
+
+        size = 0;
+    }
+
+    /**
+     * Удалить документ, суммарный размер будет пересчитан при следующей записи
+     */
+    private synchronized void remove(Path path) {
+        delete(path);
+        size = -1;
+    }
+
+    /**
+     * Вытеснить давно не использованные документы, пока суммарный размер превышает ограничение
+     */
+    private void evict() throws IOException {
+        if(size >= 0 && size <= maxBytes) {
+            return;
+        }
+
+        var files = listFiles();
+        var total = 0L;
+
+        for(var file: files) {
+            total += Files.size(file);
+        }
+
+        files.sort(Comparator.comparing(DiskOutputCache::getLastModified));
+
+        var iterator = files.iterator();
+
+        while (total > maxBytes && iterator.hasNext()) {
+            var file = iterator.next();
+            var length = Files.size(file);
+
+            if(delete(file)) {
+                total -= length;
+            }
+        }
+
+        size = total;
+    }
+
+    private @NotNull ArrayList<Path> listFiles() {
+        var result = new ArrayList<Path>();
+
+        if(!Files.isDirectory(directory)) {
+            return result;
+        }
+
+        try (var stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(result::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return result;
+    }
+
+    private @NotNull Path getPath(@NotNull String key) {
+        return directory.resolve(CompiledTemplate.digest(key.getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+    }
+
+    private static FileTime getLastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static boolean delete(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
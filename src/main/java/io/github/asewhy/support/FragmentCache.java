@@ -0,0 +1,153 @@
+package io.github.asewhy.support;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кеш готовых фрагментов документа. Фрагмент - это абзац или таблица верхнего уровня тела шаблона, полученного
+ * из {@link TemplatePrototype}, без итерируемых тегов. Если все теги фрагмента имеют те же значения, что и при одной
+ * из прошлых обработок того же прототипа, то обработка использует ранее заполненный фрагмент вместо замены тегов.
+ * <p>
+ * Кеш хранит копии заполненных фрагментов, не принадлежащие ни одному документу, а документ получает копию
+ * фрагмента из кеша, поэтому фрагменты кеша не изменяются и не сохраняются обработками. Теги фрагментов ищутся
+ * один раз на прототип. Кеш хранит фрагменты прототипа, пока прототип используется, и не больше
+ * maxEntries фрагментов на прототип (давно не использованные вытесняются). Один кеш должен использоваться
+ * обработчиками с одинаковыми настройками (синтаксис тегов, поставщик типов).
+ */
+public class FragmentCache {
+    @Getter
+    private final int maxEntries;
+
+    private final Map<TemplatePrototype, Fragments> templates = Collections.synchronizedMap(new WeakHashMap<>());
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Кеш готовых фрагментов
+     *
+     * @param maxEntries максимальное количество фрагментов на прототип
+     */
+    public FragmentCache(int maxEntries) {
+        if(maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive.");
+        }
+
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Получить теги фрагмента, найденные при прошлых обработках прототипа
+     *
+     * @param prototype прототип шаблона
+     * @param index индекс фрагмента в теле шаблона
+     * @return теги фрагмента (пустой список если фрагмент не кешируется), или null если фрагмент еще не встречался
+     */
+    public @Nullable List<String> getTags(TemplatePrototype prototype, int index) {
+        return fragments(prototype).tags.get(index);
+    }
+
+    /**
+     * Сохранить теги фрагмента
+     *
+     * @param prototype прототип шаблона
+     * @param index индекс фрагмента в теле шаблона
+     * @param tags теги фрагмента, пустой список если фрагмент не кешируется
+     */
+    public void putTags(TemplatePrototype prototype, int index, @NotNull List<String> tags) {
+        fragments(prototype).tags.put(index, List.copyOf(tags));
+    }
+
+    /**
+     * Получить заполненный фрагмент
+     *
+     * @param prototype прототип шаблона
+     * @param index индекс фрагмента в теле шаблона
+     * @param values значения тегов фрагмента
+     * @return заполненный фрагмент (не изменяется, в документ вставляется его копия), или null если его нет в кеше
+     */
+    public @Nullable Object get(TemplatePrototype prototype, int index, String values) {
+        var rendered = fragments(prototype).rendered;
+        var result = (Object) null;
+
+        synchronized (rendered) {
+            result = rendered.get(index + ":" + values);
+        }
+
+        if(result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+
+        return result;
+    }
+
+    /**
+     * Сохранить заполненный фрагмент, в кеш передается копия, не принадлежащая документу
+     *
+     * @param prototype прототип шаблона
+     * @param index индекс фрагмента в теле шаблона
+     * @param values значения тегов фрагмента
+     * @param fragment заполненный фрагмент
+     */
+    public void put(TemplatePrototype prototype, int index, String values, @NotNull Object fragment) {
+        var rendered = fragments(prototype).rendered;
+
+        synchronized (rendered) {
+            rendered.put(index + ":" + values, fragment);
+        }
+    }
+
+    /**
+     * Очистить кеш
+     */
+    public void clear() {
+        templates.clear();
+    }
+
+    /**
+     * Получить количество фрагментов, взятых из кеша
+     *
+     * @return количество попаданий
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Получить количество фрагментов, которых не было в кеше
+     *
+     * @return количество промахов
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private @NotNull Fragments fragments(TemplatePrototype prototype) {
+        synchronized (templates) {
+            return templates.computeIfAbsent(prototype, e -> new Fragments(maxEntries));
+        }
+    }
+
+    /**
+     * Фрагменты одного прототипа
+     */
+    private static final class Fragments {
+        private final Map<Integer, List<String>> tags = new ConcurrentHashMap<>();
+        private final Map<String, Object> rendered;
+
+        private Fragments(int maxEntries) {
+            this.rendered = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+    }
+}
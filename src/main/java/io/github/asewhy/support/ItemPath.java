@@ -0,0 +1,66 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.ProcessorArgumentResolver;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Путь до элемента итерируемого тега. У элемента вложенного итерируемого тега (например, налоги строки заказа)
+ * есть родитель - элемент внешнего итерируемого тега.
+ */
+@Getter
+@EqualsAndHashCode(exclude = "subspace")
+public final class ItemPath {
+    private final ItemPath parent;
+    private final String tag;
+    private final int index;
+    private final String subspace;
+
+    private ItemPath(@Nullable ItemPath parent, String tag, int index) {
+        this.parent = parent;
+        this.tag = tag;
+        this.index = index;
+        this.subspace = parent != null ? ProcessorArgumentResolver.getSubPropertyIndex(parent.subspace, tag) : tag;
+    }
+
+    /**
+     * Элемент итерируемого тега основного подпространства
+     *
+     * @param tag итерируемый тег
+     * @param index индекс элемента
+     * @return путь до элемента
+     */
+    @Contract("_, _ -> new")
+    public static @NotNull ItemPath of(String tag, int index) {
+        return new ItemPath(null, tag, index);
+    }
+
+    /**
+     * Элемент итерируемого тега подпространства текущего элемента
+     *
+     * @param tag итерируемый тег подпространства текущего элемента
+     * @param index индекс элемента
+     * @return путь до элемента
+     */
+    @Contract("_, _ -> new")
+    public @NotNull ItemPath child(String tag, int index) {
+        return new ItemPath(this, tag, index);
+    }
+
+    /**
+     * Получить итерируемый тег основного подпространства, с которого начинается путь
+     *
+     * @return итерируемый тег основного подпространства
+     */
+    public String getRootTag() {
+        return parent != null ? parent.getRootTag() : tag;
+    }
+
+    @Override
+    public String toString() {
+        return (parent != null ? parent + "." : "") + tag + "[" + index + "]";
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.interfaces.OutputCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+/**
+ * Кеш готовых документов в памяти. Суммарный размер ограничен, при превышении вытесняются документы, к которым
+ * дольше всего не обращались. Документы старше ttl считаются отсутствующими.
+ */
+public class MemoryOutputCache implements OutputCache {
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private final long ttlNanos;
+    private long size;
+
+    /**
+     * Кеш готовых документов в памяти
+     *
+     * @param maxBytes максимальный суммарный размер документов в байтах
+     * @param ttl срок хранения документа
+     */
+    public MemoryOutputCache(long maxBytes, @NotNull Duration ttl) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public synchronized byte @Nullable [] get(String key) {
+        var entry = entries.get(key);
+
+        if(entry == null) {
+            return null;
+        }
+
+        if(System.nanoTime() - entry.created > ttlNanos) {
+            remove(key); return null;
+        }
+
+        return entry.data;
+    }
+
+    @Override
+    public synchronized void put(String key, byte @NotNull [] data) {
+        remove(key);
+
+        if(data.length > maxBytes) {
+            return;
+        }
+
+        entries.put(key, new Entry(data, System.nanoTime()));
+        size += data.length;
+
+        var iterator = entries.values().iterator();
+
+        while (size > maxBytes && iterator.hasNext()) {
+            size -= iterator.next().data.length;
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Получить суммарный размер документов в кеше
+     *
+     * @return размер в байтах
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private void remove(String key) {
+        var entry = entries.remove(key);
+
+        if(entry != null) {
+            size -= entry.data.length;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] data;
+        private final long created;
+
+        private Entry(byte[] data, long created) {
+            this.data = data;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.asewhy.support;
+
+/**
+ * Счетчики, которые собираются при обработке шаблона
+ */
+public enum ProcessorCounter {
+    /**
+     * Количество замененных тегов
+     */
+    TAGS_REPLACED,
+    /**
+     * Количество сгенерированных строк таблиц
+     */
+    ROWS_GENERATED,
+    /**
+     * Количество значений, полученных из кеша
+     */
+    CACHE_HITS,
+    /**
+     * Количество значений, которых не было в кеше
+     */
+    CACHE_MISSES,
+    /**
+     * Количество прочитанных байт шаблона
+     */
+    BYTES_IN,
+    /**
+     * Количество записанных байт документа
+     */
+    BYTES_OUT,
+    /**
+     * Количество документов, полученных из кеша готовых документов
+     */
+    OUTPUT_CACHE_HITS,
+    /**
+     * Количество удаленных условных блоков
+     */
+    BLOCKS_REMOVED,
+    /**
+     * Количество фрагментов документа, взятых из кеша готовых фрагментов
+     */
+    FRAGMENTS_REUSED
+}
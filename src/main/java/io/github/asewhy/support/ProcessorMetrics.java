@@ -0,0 +1,152 @@
+package io.github.asewhy.support;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Метрики одной обработки шаблона. Если метрики выключены, то все методы записи ничего не делают,
+ * и даже не запрашивают текущее время.
+ */
+@Getter
+public class ProcessorMetrics {
+    private static final ProcessorPhase[] PHASES = ProcessorPhase.values();
+    private static final ProcessorCounter[] COUNTERS = ProcessorCounter.values();
+
+    private final Class<?> processor;
+    private final boolean enabled;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLongArray phases = new AtomicLongArray(PHASES.length);
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS.length);
+
+    @Setter
+    private Throwable error;
+
+    /**
+     * Метрики обработки шаблона
+     *
+     * @param processor класс обработчика, который производит обработку
+     * @param enabled нужно ли собирать метрики
+     */
+    public ProcessorMetrics(Class<?> processor, boolean enabled) {
+        this.processor = processor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Начать замер фазы
+     *
+     * @return отметка времени начала фазы, или 0 если метрики выключены
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Получить время, прошедшее с начала замера
+     *
+     * @param start отметка времени, полученная из {@link ProcessorMetrics#start()}
+     * @return прошедшее время в наносекундах, или 0 если метрики выключены
+     */
+    public long elapsed(long start) {
+        return enabled ? System.nanoTime() - start : 0;
+    }
+
+    /**
+     * Закончить замер фазы
+     *
+     * @param phase фаза для которой нужно учесть время
+     * @param start отметка времени, полученная из {@link ProcessorMetrics#start()}
+     * @return затраченное на фазу время в наносекундах
+     */
+    public long stop(ProcessorPhase phase, long start) {
+        if(enabled) {
+            var elapsed = System.nanoTime() - start;
+            phases.addAndGet(phase.ordinal(), elapsed);
+            return elapsed;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Добавить время к фазе
+     *
+     * @param phase фаза
+     * @param nanos время в наносекундах
+     */
+    public void add(ProcessorPhase phase, long nanos) {
+        if(enabled) {
+            phases.addAndGet(phase.ordinal(), nanos);
+        }
+    }
+
+    /**
+     * Увеличить значение счетчика
+     *
+     * @param counter счетчик
+     * @param delta значение, на которое нужно увеличить счетчик
+     */
+    public void count(ProcessorCounter counter, long delta) {
+        if(enabled) {
+            counters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    /**
+     * Получить время, затраченное на фазу
+     *
+     * @param phase фаза
+     * @return время в наносекундах
+     */
+    public long getDuration(ProcessorPhase phase) {
+        return phases.get(phase.ordinal());
+    }
+
+    /**
+     * Получить значение счетчика
+     *
+     * @param counter счетчик
+     * @return значение счетчика
+     */
+    public long getCounter(ProcessorCounter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    /**
+     * Получить время всех фаз
+     *
+     * @return карта фаз и времени в наносекундах
+     */
+    public Map<ProcessorPhase, Long> getDurations() {
+        var result = new EnumMap<ProcessorPhase, Long>(ProcessorPhase.class);
+
+        for(var phase: PHASES) {
+            result.put(phase, getDuration(phase));
+        }
+
+        return result;
+    }
+
+    /**
+     * Получить значения всех счетчиков
+     *
+     * @return карта счетчиков и их значений
+     */
+    public Map<ProcessorCounter, Long> getCounters() {
+        var result = new EnumMap<ProcessorCounter, Long>(ProcessorCounter.class);
+
+        for(var counter: COUNTERS) {
+            result.put(counter, getCounter(counter));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.asewhy.support;
+
+/**
+ * Фазы обработки шаблона, по которым собирается время выполнения
+ */
+public enum ProcessorPhase {
+    /**
+     * Загрузка шаблона из потока
+     */
+    LOAD,
+    /**
+     * Копирование шаблона из прототипа
+     */
+    TEMPLATE_COPY,
+    /**
+     * Предварительная оптимизация шаблона
+     */
+    OPTIMIZE,
+    /**
+     * Обход дерева документа в поисках нужных узлов
+     */
+    TRAVERSAL,
+    /**
+     * Поиск тегов в текстовых узлах
+     */
+    MATCHING,
+    /**
+     * Получение значений тегов
+     */
+    RESOLUTION,
+    /**
+     * Клонирование итерируемых строк
+     */
+    ROW_CLONING,
+    /**
+     * Сохранение документа в поток
+     */
+    SAVE
+}
@@ -0,0 +1,21 @@
+package io.github.asewhy.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Отчет профилирования, время получения значений для каждого тега и каждого поставляемого класса
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessorProfile {
+    private final Map<String, ProfileEntry> tags;
+    private final Map<Class<?>, ProfileEntry> resolvers;
+
+    @Override
+    public String toString() {
+        return "tags=" + tags + ", resolvers=" + resolvers;
+    }
+}
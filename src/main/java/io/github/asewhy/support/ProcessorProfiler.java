@@ -0,0 +1,89 @@
+package io.github.asewhy.support;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Собирает количество вызовов, суммарное и максимальное время получения значений тегов и данных поставщиков
+ */
+public class ProcessorProfiler {
+    private final Map<String, Accumulator> tags = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Accumulator> resolvers = new ConcurrentHashMap<>();
+
+    /**
+     * Учесть получение значения тега
+     *
+     * @param tag тег
+     * @param nanos затраченное время в наносекундах
+     */
+    public void recordTag(String tag, long nanos) {
+        tags.computeIfAbsent(tag, e -> new Accumulator()).record(nanos);
+    }
+
+    /**
+     * Учесть получение данных поставщиком
+     *
+     * @param clazz поставляемый класс
+     * @param nanos затраченное время в наносекундах
+     */
+    public void recordResolver(Class<?> clazz, long nanos) {
+        resolvers.computeIfAbsent(clazz, e -> new Accumulator()).record(nanos);
+    }
+
+    /**
+     * Получить отчет по собранным данным
+     *
+     * @return отчет профилирования
+     */
+    public ProcessorProfile getReport() {
+        return new ProcessorProfile(snapshot(tags), snapshot(resolvers));
+    }
+
+    /**
+     * Получить отчет по собранным данным и сбросить их
+     *
+     * @return отчет профилирования
+     */
+    public ProcessorProfile getReportAndReset() {
+        var result = getReport();
+        reset();
+        return result;
+    }
+
+    /**
+     * Сбросить собранные данные
+     */
+    public void reset() {
+        tags.clear();
+        resolvers.clear();
+    }
+
+    private static <K> Map<K, ProfileEntry> snapshot(Map<K, Accumulator> source) {
+        var result = new HashMap<K, ProfileEntry>();
+
+        for(var current: source.entrySet()) {
+            result.put(current.getKey(), current.getValue().toEntry());
+        }
+
+        return result;
+    }
+
+    private static class Accumulator {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        private ProfileEntry toEntry() {
+            return new ProfileEntry(count.sum(), total.sum(), max.get());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.asewhy.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProfileEntry {
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    /**
+     * Получить среднее время одного вызова
+     *
+     * @return среднее время в наносекундах
+     */
+    public long getAverageNanos() {
+        return count > 0 ? totalNanos / count : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", total=" + totalNanos + "ns, max=" + maxNanos + "ns";
+    }
+}
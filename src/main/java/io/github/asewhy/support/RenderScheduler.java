@@ -0,0 +1,356 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.base.BaseSequenceTagProcessor;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.interfaces.DocxProcessor;
+import lombok.Getter;
+import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Планировщик обработки шаблонов. Ограничивает количество одновременных обработок и суммарную оценку памяти,
+ * которая им нужна. Обработки, которые не помещаются в ограничения, ждут в очереди ограниченного размера не дольше
+ * maxWait, если очередь заполнена или время ожидания вышло, то обработка отклоняется с {@link ProcessorException}.
+ * Очередь допускает обработки строго в порядке поступления: допускается только первая ожидающая обработка, поэтому
+ * небольшие обработки не обгоняют большую, которая ждет освобождения памяти.
+ * <p>
+ * Оценка обработки целиком (вместе с генерируемыми строками) известна до допуска, поэтому суммарная оценка выполняющихся
+ * обработок не превышает бюджет памяти. Обработка, оценка которой больше всего бюджета, все равно выполняется, но только
+ * когда других обработок нет.
+ */
+public class RenderScheduler {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+
+    @Getter
+    private final int maxConcurrent;
+
+    @Getter
+    private final int maxQueue;
+
+    @Getter
+    private final long memoryBudget;
+
+    @Getter
+    private final Duration maxWait;
+
+    /**
+     * Во сколько раз модель документа в памяти больше файла шаблона
+     */
+    @Getter
+    @Setter
+    private volatile int templateFactor = 20;
+
+    /**
+     * Оценка памяти на одну сгенерированную строку таблицы, в байтах
+     */
+    @Getter
+    @Setter
+    private volatile long rowBytes = 4096;
+
+    private int active;
+    private long reserved;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private volatile long maxWaitNanos;
+
+    /**
+     * Планировщик обработки шаблонов
+     *
+     * @param maxConcurrent максимальное количество одновременных обработок
+     * @param maxQueue максимальное количество обработок, ожидающих в очереди
+     * @param memoryBudget бюджет памяти на все одновременные обработки, в байтах
+     * @param maxWait максимальное время ожидания в очереди
+     */
+    public RenderScheduler(int maxConcurrent, int maxQueue, long memoryBudget, @NotNull Duration maxWait) {
+        if(maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive.");
+        }
+
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.memoryBudget = memoryBudget;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Обработать шаблон, дождавшись своей очереди
+     *
+     * @param processor обработчик, не должен использоваться одновременно другими потоками
+     * @param input поток шаблона
+     * @param output поток выхода документа
+     * @throws ProcessorException если обработка отклонена или в процессе обработки произошли ошибки
+     */
+    public void doProcess(DocxProcessor processor, @NotNull InputStream input, OutputStream output) throws ProcessorException {
+        try {
+            doProcess(processor, input.readAllBytes(), output);
+        } catch (IOException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Обработать шаблон, дождавшись своей очереди
+     *
+     * @param processor обработчик, не должен использоваться одновременно другими потоками
+     * @param template содержимое шаблона
+     * @param output поток выхода документа
+     * @throws ProcessorException если обработка отклонена или в процессе обработки произошли ошибки
+     */
+    public void doProcess(DocxProcessor processor, byte @NotNull [] template, OutputStream output) throws ProcessorException {
+        //
+        // Строки считаются до допуска, чтобы бюджет памяти проверялся по полной оценке обработки
+        //
+        var estimate = estimate(processor, template);
+
+        acquire(estimate);
+
+        try {
+            processor.doProcess(new ByteArrayInputStream(template), output);
+        } finally {
+            release(estimate);
+        }
+    }
+
+    /**
+     * Выполнить обработку, дождавшись своей очереди
+     *
+     * @param estimate оценка памяти, нужной обработке, в байтах
+     * @param task обработка
+     * @throws ProcessorException если обработка отклонена или в процессе обработки произошли ошибки
+     */
+    public void execute(long estimate, @NotNull RenderTask task) throws ProcessorException {
+        acquire(estimate);
+
+        try {
+            task.run();
+        } finally {
+            release(estimate);
+        }
+    }
+
+    /**
+     * Оценить память, нужную для обработки шаблона: размер шаблона, умноженный на {@link RenderScheduler#templateFactor},
+     * плюс количество генерируемых строк таблиц, умноженное на {@link RenderScheduler#rowBytes}. Количество строк
+     * известно только для {@link BaseSequenceTagProcessor} с тегами в тексте документа. Количество строк получается
+     * из поставщиков данных, поэтому оценка считается в потоке вызывающего до постановки в очередь.
+     *
+     * @param processor обработчик
+     * @param template содержимое шаблона
+     * @return оценка памяти в байтах
+     * @throws ProcessorException если шаблон не удалось прочитать
+     */
+    public long estimate(DocxProcessor processor, byte @NotNull [] template) throws ProcessorException {
+        return estimateTemplate(template) + estimateRows(processor, template);
+    }
+
+    private long estimateTemplate(byte @NotNull [] template) {
+        return (long) template.length * templateFactor;
+    }
+
+    private long estimateRows(DocxProcessor processor, byte @NotNull [] template) throws ProcessorException {
+        if(processor instanceof BaseSequenceTagProcessor && ((BaseSequenceTagProcessor) processor).getTagBinding() == TagBinding.TEXT) {
+            return ((BaseSequenceTagProcessor) processor).doCountRows(new ByteArrayInputStream(template)) * rowBytes;
+        }
+
+        return 0;
+    }
+
+    private void acquire(long estimate) throws ProcessorException {
+        var start = System.nanoTime();
+
+        lock.lock();
+
+        try {
+            if(queue.isEmpty() && canRun(estimate)) {
+                admit(estimate, start); return;
+            }
+
+            if(queue.size() >= maxQueue) {
+                rejected.increment();
+                throw new ProcessorException("Render queue is full (" + queue.size() + " waiting).");
+            }
+
+            var waiter = new Waiter(lock.newCondition());
+            var remaining = maxWait.toNanos();
+
+            queue.addLast(waiter);
+
+            try {
+                while (queue.peekFirst() != waiter || !canRun(estimate)) {
+                    if(remaining <= 0) {
+                        rejected.increment();
+                        throw new ProcessorException("Render was not admitted within " + maxWait.toMillis() + "ms.");
+                    }
+
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                throw new ProcessorException(e);
+            } finally {
+                queue.remove(waiter);
+                //
+                // Следующая обработка стала первой в очереди, возможно ее тоже можно допустить
+                //
+                signalHead();
+            }
+
+            admit(estimate, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalHead() {
+        var head = queue.peekFirst();
+
+        if(head != null) {
+            head.condition.signal();
+        }
+    }
+
+    private boolean canRun(long estimate) {
+        return active < maxConcurrent && (active == 0 || reserved + estimate <= memoryBudget);
+    }
+
+    private void admit(long estimate, long start) {
+        var waited = System.nanoTime() - start;
+
+        active++;
+        reserved += estimate;
+        totalWaitNanos.add(waited);
+
+        if(waited > maxWaitNanos) {
+            maxWaitNanos = waited;
+        }
+    }
+
+    private void release(long estimate) {
+        lock.lock();
+
+        try {
+            active--;
+            reserved -= estimate;
+            completed.increment();
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Получить количество выполняющихся обработок
+     *
+     * @return количество выполняющихся обработок
+     */
+    public int getActive() {
+        lock.lock();
+
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Получить количество обработок, ожидающих в очереди
+     *
+     * @return глубина очереди
+     */
+    public int getQueueDepth() {
+        lock.lock();
+
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Получить суммарную оценку памяти выполняющихся обработок
+     *
+     * @return оценка памяти в байтах
+     */
+    public long getReservedBytes() {
+        lock.lock();
+
+        try {
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Получить количество завершенных обработок
+     *
+     * @return количество завершенных обработок
+     */
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * Получить количество отклоненных обработок
+     *
+     * @return количество отклоненных обработок
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Получить среднее время ожидания в очереди допущенных обработок
+     *
+     * @return среднее время ожидания
+     */
+    public Duration getAverageWait() {
+        var admitted = completed.sum() + getActive();
+        return admitted == 0 ? Duration.ZERO : Duration.ofNanos(totalWaitNanos.sum() / admitted);
+    }
+
+    /**
+     * Получить максимальное время ожидания в очереди
+     *
+     * @return максимальное время ожидания
+     */
+    public Duration getMaxObservedWait() {
+        return Duration.ofNanos(maxWaitNanos);
+    }
+
+    /**
+     * Обработка, ожидающая в очереди
+     */
+    private static final class Waiter {
+        private final Condition condition;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Обработка, выполняемая планировщиком
+     */
+    @FunctionalInterface
+    public interface RenderTask {
+        void run() throws ProcessorException;
+    }
+}
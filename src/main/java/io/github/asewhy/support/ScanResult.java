@@ -0,0 +1,22 @@
+package io.github.asewhy.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Результат проверки шаблона, используемые теги и найденные итерируемые строки
+ */
+@Getter
+@AllArgsConstructor
+public class ScanResult {
+    private final Set<String> tags;
+    private final List<ScannedRow> rows;
+
+    @Override
+    public String toString() {
+        return "tags=" + tags + ", rows=" + rows;
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.asewhy.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Итерируемая строка таблицы, найденная при проверке шаблона
+ */
+@Getter
+@AllArgsConstructor
+public class ScannedRow {
+    private final String primaryTag;
+    private final Set<String> tags;
+
+    @Override
+    public String toString() {
+        return primaryTag + tags;
+    }
+}
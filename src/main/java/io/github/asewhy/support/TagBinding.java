@@ -0,0 +1,17 @@
+package io.github.asewhy.support;
+
+/**
+ * Способ привязки тегов к содержимому шаблона
+ */
+public enum TagBinding {
+    /**
+     * Теги ищутся в тексте документа (см. {@link TagSyntax})
+     */
+    TEXT,
+    /**
+     * Теги - это элементы управления содержимым (w:sdt), тег задается значением w:tag. Содержимое элемента заменяется
+     * значением тега, а элемент, привязанный к итерируемому тегу, повторяется по одному разу на каждый элемент коллекции
+     * и заполняется тегами подпространства.
+     */
+    CONTENT_CONTROL
+}
@@ -0,0 +1,134 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.json.JsonGenerator;
+import io.github.asewhy.raw.CompiledTemplate;
+import lombok.Getter;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Каталог тегов поставщика типов: карта описаний, ее json представление и версия (отпечаток json), которую
+ * можно использовать как ETag. Каталог неизменяемый, строится один раз после изменения набора тегов, описания
+ * подпространств копируются в каталог.
+ */
+@Getter
+public class TagCatalog {
+    private final Map<String, Object> descriptions;
+    private final String json;
+    private final String version;
+
+    protected TagCatalog(@NotNull Map<String, Object> descriptions) {
+        var copy = new TreeMap<String, Object>();
+
+        for(var current: descriptions.entrySet()) {
+            var value = current.getValue();
+
+            if(value instanceof SubspaceEntry) {
+                var subspace = (SubspaceEntry) value;
+
+                value = SubspaceEntry.of(subspace.getDescription(), Collections.unmodifiableMap(new TreeMap<>(subspace.getTags())));
+            }
+
+            copy.put(current.getKey(), value);
+        }
+
+        this.descriptions = Collections.unmodifiableMap(copy);
+        this.json = toJson(this.descriptions);
+        this.version = CompiledTemplate.digest(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Построить каталог тегов
+     *
+     * @param descriptions карта описаний тегов (см. {@link io.github.asewhy.ProcessorTypeProvider#getDescriptionMap()})
+     * @return каталог тегов
+     */
+    @Contract("_ -> new")
+    public static @NotNull TagCatalog of(Map<String, Object> descriptions) {
+        return new TagCatalog(descriptions);
+    }
+
+    /**
+     * Получить значение заголовка ETag для каталога
+     *
+     * @return версия каталога в кавычках
+     */
+    public String getETag() {
+        return '"' + version + '"';
+    }
+
+    /**
+     * Проверить, совпадает ли каталог с версией, которая уже есть у клиента
+     *
+     * @param ifNoneMatch значение заголовка If-None-Match
+     * @return true если клиенту можно ответить 304
+     */
+    public boolean matches(String ifNoneMatch) {
+        if(ifNoneMatch == null) {
+            return false;
+        }
+
+        for(var tag: ifNoneMatch.split(",")) {
+            var trimmed = tag.trim();
+
+            if(trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+
+            if(trimmed.equals("*") || trimmed.equals(getETag())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String toJson(@NotNull Map<String, Object> descriptions) {
+        var gen = JsonGenerator.common().writeStartObject();
+
+        for(var current: descriptions.entrySet()) {
+            var value = current.getValue();
+
+            if(value instanceof SubspaceEntry) {
+                var subspace = (SubspaceEntry) value;
+
+                gen.writeStartObject(current.getKey());
+                gen.writeField("type", subspace.getType());
+
+                if(subspace.getDescription() != null) {
+                    writeDescription(gen, "description", subspace.getDescription());
+                }
+
+                gen.writeStartObject("tags");
+
+                for(var tag: subspace.getTags().entrySet()) {
+                    writeDescription(gen, tag.getKey(), tag.getValue());
+                }
+
+                gen.writeEndObject();
+                gen.writeEndObject();
+            } else if(value instanceof DescriptionEntry) {
+                writeDescription(gen, current.getKey(), (DescriptionEntry) value);
+            }
+        }
+
+        return gen.writeEndObject().toString();
+    }
+
+    private static void writeDescription(@NotNull JsonGenerator gen, String name, @NotNull DescriptionEntry description) {
+        gen.writeStartObject(name);
+        gen.writeField("type", description.getType());
+        gen.writeField("text", description.getText());
+
+        if(description.getGroup() != null) {
+            gen.writeField("group", description.getGroup().getCanonicalName());
+        }
+
+        gen.writeEndObject();
+    }
+}
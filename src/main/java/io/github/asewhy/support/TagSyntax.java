@@ -0,0 +1,305 @@
+package io.github.asewhy.support;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Синтаксис тегов в тексте шаблона.
+ *
+ * {@link TagSyntax#PLAIN} - теги ищутся в тексте как есть, каждый тег набора проверяется отдельно.
+ * {@link TagSyntax#delimited(String, String)} - теги обрамлены разделителями (например <code>{{tag}}</code>), текст
+ * разбирается один раз, а каждый найденный тег ищется в наборе по хешу, поэтому стоимость поиска не зависит от размера
+ * набора тегов. Теги итерируемой строки можно указывать как с префиксом итерируемого тега (<code>{{lines.title}}</code>),
+ * так и без него (<code>{{title}}</code>).
+ */
+@Getter
+public abstract class TagSyntax {
+    public static final TagSyntax PLAIN = new Plain();
+
+    private final String open;
+    private final String close;
+
+    private TagSyntax(String open, String close) {
+        this.open = open;
+        this.close = close;
+    }
+
+    /**
+     * Синтаксис тегов, обрамленных разделителями
+     *
+     * @param open открывающий разделитель, например <code>{{</code> или <code>${</code>
+     * @param close закрывающий разделитель, например <code>}}</code> или <code>}</code>
+     * @return синтаксис тегов
+     */
+    public static @NotNull TagSyntax delimited(@NotNull String open, @NotNull String close) {
+        if(open.isEmpty() || close.isEmpty()) {
+            throw new IllegalArgumentException("Tag delimiters cannot be empty.");
+        }
+
+        return new Delimited(open, close);
+    }
+
+    /**
+     * Получить синтаксис по разделителям, пустые разделители соответствуют {@link TagSyntax#PLAIN}
+     *
+     * @param open открывающий разделитель
+     * @param close закрывающий разделитель
+     * @return синтаксис тегов
+     */
+    public static @NotNull TagSyntax of(@NotNull String open, @NotNull String close) {
+        if(open.isEmpty() && close.isEmpty()) {
+            return PLAIN;
+        }
+
+        return delimited(open, close);
+    }
+
+    /**
+     * Подготовить набор тегов для поиска, подготовленный набор передается в остальные методы
+     *
+     * @param tagNames набор тегов подпространства
+     * @return подготовленный набор тегов
+     */
+    public abstract Collection<String> prepare(List<String> tagNames);
+
+    /**
+     * Найти первый тег в тексте, для которого filter вернет true
+     *
+     * @param text текст
+     * @param tags подготовленный набор тегов
+     * @param scope итерируемый тег, теги строки которого ищутся, или null для основного подпространства
+     * @param filter условие
+     * @return найденный тег, или null
+     */
+    public abstract @Nullable String find(String text, Collection<String> tags, @Nullable String scope, Predicate<String> filter);
+
+    /**
+     * Заменить теги в тексте их значениями
+     *
+     * @param text текст
+     * @param tags подготовленный набор тегов
+     * @param scope итерируемый тег, теги строки которого заменяются, или null для основного подпространства
+     * @param values функция получения значения тега
+     * @return текст с замененными тегами
+     */
+    public abstract String replace(String text, Collection<String> tags, @Nullable String scope, Function<String, String> values);
+
+    /**
+     * Получить маркер условного блока, если текст целиком состоит из маркера. Маркер - это символ и тег:
+     * {@code #tag} открывает блок, который остается если значение тега истинно, {@code ^tag} открывает блок, который
+     * остается если значение ложно, {@code /tag} закрывает блок. В режиме с разделителями маркер обрамляется
+     * разделителями, как и теги.
+     *
+     * @param text текст
+     * @return маркер (символ и тег), или null если текст не является маркером
+     */
+    public @Nullable String marker(@NotNull String text) {
+        var value = text.trim();
+
+        if(!open.isEmpty()) {
+            if(value.length() < open.length() + close.length() || !value.startsWith(open) || !value.endsWith(close)) {
+                return null;
+            }
+
+            value = value.substring(open.length(), value.length() - close.length()).trim();
+        }
+
+        if(value.length() < 2 || (value.charAt(0) != '#' && value.charAt(0) != '^' && value.charAt(0) != '/')) {
+            return null;
+        }
+
+        return value;
+    }
+
+    /**
+     * Добавить в found все теги, найденные в тексте
+     *
+     * @param text текст
+     * @param tags подготовленный набор тегов
+     * @param scope итерируемый тег, или null для основного подпространства
+     * @param found найденные теги
+     */
+    public void collect(String text, Collection<String> tags, @Nullable String scope, Collection<String> found) {
+        find(text, tags, scope, tag -> { found.add(tag); return false; });
+    }
+
+    /**
+     * Посчитать вхождения тегов в тексте, каждое вхождение (в том числе повторное вхождение того же тега) учитывается
+     *
+     * @param text текст
+     * @param tags подготовленный набор тегов
+     * @param scope итерируемый тег, или null для основного подпространства
+     * @return количество вхождений
+     */
+    public int count(String text, Collection<String> tags, @Nullable String scope) {
+        var result = new int[1];
+        find(text, tags, scope, tag -> { result[0]++; return false; });
+        return result[0];
+    }
+
+    @Override
+    public String toString() {
+        return open + "tag" + close;
+    }
+
+    /**
+     * Теги без разделителей
+     */
+    private static final class Plain extends TagSyntax {
+        private Plain() {
+            super("", "");
+        }
+
+        @Override
+        public Collection<String> prepare(List<String> tagNames) {
+            return tagNames;
+        }
+
+        @Override
+        public String find(String text, @NotNull Collection<String> tags, String scope, Predicate<String> filter) {
+            for(var tag: tags) {
+                if(text.contains(tag) && filter.test(tag)) {
+                    return tag;
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public String replace(String text, @NotNull Collection<String> tags, String scope, Function<String, String> values) {
+            for(var tag: tags) {
+                if(text.contains(tag)) {
+                    text = text.replaceAll(tag, values.apply(tag));
+                }
+            }
+
+            return text;
+        }
+
+        @Override
+        public int count(String text, @NotNull Collection<String> tags, String scope) {
+            var result = 0;
+
+            for(var tag: tags) {
+                for(var position = text.indexOf(tag); position >= 0; position = text.indexOf(tag, position + tag.length())) {
+                    result++;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Теги, обрамленные разделителями
+     */
+    private static final class Delimited extends TagSyntax {
+        private Delimited(String open, String close) {
+            super(open, close);
+        }
+
+        @Override
+        public Collection<String> prepare(List<String> tagNames) {
+            return new HashSet<>(tagNames);
+        }
+
+        @Override
+        public String find(String text, Collection<String> tags, String scope, Predicate<String> filter) {
+            var open = getOpen();
+            var close = getClose();
+            var position = text.indexOf(open);
+
+            while (position >= 0) {
+                var start = position + open.length();
+                var end = text.indexOf(close, start);
+
+                if(end < 0) {
+                    break;
+                }
+
+                var tag = resolve(text.substring(start, end).trim(), tags, scope);
+
+                if(tag != null) {
+                    if(filter.test(tag)) {
+                        return tag;
+                    }
+
+                    position = text.indexOf(open, end + close.length());
+                } else {
+                    position = text.indexOf(open, start);
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public String replace(String text, Collection<String> tags, String scope, Function<String, String> values) {
+            var open = getOpen();
+            var close = getClose();
+            var position = text.indexOf(open);
+
+            if(position < 0) {
+                return text;
+            }
+
+            var result = new StringBuilder(text.length());
+            var copied = 0;
+
+            while (position >= 0) {
+                var start = position + open.length();
+                var end = text.indexOf(close, start);
+
+                if(end < 0) {
+                    break;
+                }
+
+                var tag = resolve(text.substring(start, end).trim(), tags, scope);
+
+                if(tag != null) {
+                    var value = values.apply(tag);
+
+                    result.append(text, copied, position).append(value != null ? value : "");
+                    copied = end + close.length();
+                    position = text.indexOf(open, copied);
+                } else {
+                    position = text.indexOf(open, start);
+                }
+            }
+
+            return result.append(text, copied, text.length()).toString();
+        }
+
+        /**
+         * Получить тег по имени между разделителями
+         *
+         * @param name имя между разделителями
+         * @param tags подготовленный набор тегов
+         * @param scope итерируемый тег, или null
+         * @return тег, или null если такого тега нет в наборе
+         */
+        private static @Nullable String resolve(String name, @NotNull Collection<String> tags, String scope) {
+            if(tags.contains(name)) {
+                return name;
+            }
+
+            if(scope != null && name.length() > scope.length() + 1 && name.charAt(scope.length()) == '.' && name.startsWith(scope)) {
+                var tag = name.substring(scope.length() + 1);
+
+                if(tags.contains(tag)) {
+                    return tag;
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.asewhy.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Сложность шаблона, оценка стоимости его обработки с текущими данными. Стоимость измеряется в условных единицах,
+ * примерно равных количеству узлов, которые нужно обойти, скопировать или заполнить: узлы шаблона, вхождения тегов,
+ * узлы и теги итерируемых строк и блоков, умноженные на количество их повторений, и размер частей пакета в килобайтах
+ * (их нужно прочитать и записать). По стоимости можно отправлять тяжелые обработки в отдельный пул.
+ */
+@Getter
+@AllArgsConstructor
+public class TemplateComplexity {
+    /**
+     * Количество узлов основной части документа
+     */
+    private final long nodes;
+
+    /**
+     * Количество фрагментов текста (w:r)
+     */
+    private final long runs;
+
+    /**
+     * Количество текстовых узлов (w:t)
+     */
+    private final long texts;
+
+    /**
+     * Количество вхождений тегов по подпространствам (основное подпространство или итерируемый тег)
+     */
+    private final Map<String, Integer> tagOccurrences;
+
+    /**
+     * Количество повторений итерируемых строк и блоков по итерируемым тегам, -1 если значение получить не удалось
+     */
+    private final Map<String, Integer> fanOut;
+
+    /**
+     * Суммарный размер изображений, в байтах
+     */
+    private final long imageBytes;
+
+    /**
+     * Размеры частей пакета, в байтах (только частей, размер которых известен без сохранения)
+     */
+    private final Map<String, Long> partSizes;
+
+    /**
+     * Оценка стоимости обработки
+     */
+    private final long cost;
+
+    /**
+     * Проверить, тяжелая ли обработка
+     *
+     * @param threshold порог стоимости
+     * @return true если стоимость не меньше порога
+     */
+    public boolean isHeavy(long threshold) {
+        return cost >= threshold;
+    }
+
+    @Override
+    public String toString() {
+        return "cost=" + cost + ", nodes=" + nodes + ", runs=" + runs + ", texts=" + texts + ", tags=" + tagOccurrences +
+            ", fanOut=" + fanOut + ", imageBytes=" + imageBytes + ", parts=" + partSizes.size();
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.exceptions.ProcessorException;
+import lombok.Getter;
+import org.docx4j.convert.out.common.preprocess.PartialDeepCopy;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Прототип шаблона. Хранит один загруженный шаблон и выдает для каждой обработки независимую копию. Копируется
+ * только основная часть документа (которую изменяет обработчик), остальные части (изображения, стили, шрифты,
+ * колонтитулы и т.д.) используются копиями по ссылке, поэтому сам прототип изменять нельзя. Данные двоичных частей
+ * общие, но каждая копия читает их через собственный буфер, поэтому копии можно сохранять параллельно.
+ */
+public class TemplatePrototype {
+    private static final Set<String> DEEP_COPY_RELATIONSHIPS = Set.of(Namespaces.DOCUMENT);
+
+    @Getter
+    private final WordprocessingMLPackage template;
+
+    /**
+     * Прототип шаблона
+     *
+     * @param template загруженный шаблон, после создания прототипа не должен изменяться
+     */
+    public TemplatePrototype(WordprocessingMLPackage template) {
+        this.template = template;
+    }
+
+    /**
+     * Загрузить прототип шаблона
+     *
+     * @param input поток шаблона
+     * @return прототип шаблона
+     * @throws ProcessorException если шаблон не удалось загрузить
+     */
+    public static @NotNull TemplatePrototype load(InputStream input) throws ProcessorException {
+        try {
+            return new TemplatePrototype(WordprocessingMLPackage.load(input));
+        } catch (Docx4JException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Загрузить прототип шаблона
+     *
+     * @param input файл шаблона
+     * @return прототип шаблона
+     * @throws ProcessorException если шаблон не удалось загрузить
+     */
+    public static @NotNull TemplatePrototype load(@NotNull File input) throws ProcessorException {
+        try {
+            var template = WordprocessingMLPackage.load(input);
+
+            if(template.name() == null) {
+                template.setName(input.getName());
+            }
+
+            return new TemplatePrototype(template);
+        } catch (Docx4JException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * Получить новую копию шаблона для обработки
+     *
+     * @return копия шаблона
+     * @throws ProcessorException если шаблон не удалось скопировать
+     */
+    public WordprocessingMLPackage newInstance() throws ProcessorException {
+        try {
+            var result = (WordprocessingMLPackage) Copier.copy(template, DEEP_COPY_RELATIONSHIPS);
+
+            result.setName(template.name());
+
+            return result;
+        } catch (Docx4JException | ClassCastException e) {
+            throw new ProcessorException(e);
+        }
+    }
+
+    /**
+     * {@link PartialDeepCopy#process} дополнительно настраивает сопоставление шрифтов, которое для обработки не нужно
+     */
+    private static final class Copier extends PartialDeepCopy {
+        private static @NotNull OpcPackage copy(OpcPackage source, Set<String> relationshipTypes) throws Docx4JException {
+            var result = createPackage(source);
+            deepCopyRelationships(result, source, result, relationshipTypes);
+
+            // Позиция буфера двоичной части меняется при сохранении, поэтому копии не должны делить один буфер
+            for(var part: result.getParts().getParts().values()) {
+                if(part instanceof BinaryPart) {
+                    var binary = (BinaryPart) part;
+                    var buffer = binary.getBuffer();
+
+                    if(buffer != null) {
+                        binary.setBinaryData(buffer.duplicate());
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+}
@@ -5,14 +5,25 @@ import lombok.Getter;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.List;
 
 @Getter
 public class TreeResult {
     private final AccessibleObject accessible;
     private final Class<?> clazz;
 
+    /**
+     * Члены пути до accessible, если бинд по пути (например address для address.city), иначе пустой список
+     */
+    private final List<AccessibleObject> path;
+
     public TreeResult(AccessibleObject accessible) {
+        this(List.of(), accessible);
+    }
+
+    public TreeResult(List<AccessibleObject> path, AccessibleObject accessible) {
         this.accessible = accessible;
+        this.path = path;
 
         if(accessible instanceof Field) {
             this.clazz = ((Field) accessible).getType();
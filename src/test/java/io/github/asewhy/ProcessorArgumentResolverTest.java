@@ -0,0 +1,126 @@
+package io.github.asewhy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessorArgumentResolverTest {
+    private ProcessorTypeProvider types;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        types = new ProcessorTypeProvider();
+
+        types.provide(Order.class)
+            .bind("number", "number")
+        .build();
+    }
+
+    @Test
+    void dropsValuesAfterRenderByDefault() throws Exception {
+        var resolver = new ProcessorArgumentResolver(types).provide(new Order("A-1"));
+
+        assertEquals("A-1", resolver.resolve("number"));
+        assertEquals(1, resolver.getCacheSize());
+
+        resolver.endRender();
+
+        assertEquals(0, resolver.getCacheSize());
+    }
+
+    @Test
+    void retainsValuesWhileDataIsTheSame() throws Exception {
+        var calls = new AtomicInteger();
+        var order = new Order("A-1");
+        var resolver = new ProcessorArgumentResolver(types).provide(Order.class, () -> {
+            calls.incrementAndGet();
+            return order;
+        });
+
+        resolver.setRetainedCapacity(10);
+
+        assertEquals("A-1", resolver.resolve("number"));
+        assertEquals("A-1", resolver.resolve("number"));
+        resolver.endRender();
+
+        assertEquals(1, resolver.getCacheSize());
+        assertEquals("A-1", resolver.resolve("number"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void dropsRetainedValuesWhenDataChanges() throws Exception {
+        var current = new AtomicReference<>(new Order("A-1"));
+        var resolver = new ProcessorArgumentResolver(types).provide(Order.class, current::get);
+
+        resolver.setRetainedCapacity(10);
+
+        assertEquals("A-1", resolver.resolve("number"));
+        resolver.endRender();
+
+        current.set(new Order("B-2"));
+
+        assertEquals("B-2", resolver.resolve("number"));
+    }
+
+    @Test
+    void dropsRetainedValuesWhenProviderChangesDirectly() throws Exception {
+        var resolver = new ProcessorArgumentResolver(types).provide(new Order("A-1"));
+
+        resolver.setRetainedCapacity(10);
+
+        assertEquals("A-1", resolver.resolve("number"));
+        resolver.endRender();
+
+        resolver.getDataProvider().provide(Order.class, new Order("B-2"));
+
+        assertEquals("B-2", resolver.resolve("number"));
+    }
+
+    @Test
+    void clearDropsValuesOfMutatedData() throws Exception {
+        var order = new Order("A-1");
+        var resolver = new ProcessorArgumentResolver(types).provide(order);
+
+        resolver.setRetainedCapacity(10);
+
+        assertEquals("A-1", resolver.resolve("number"));
+        resolver.endRender();
+
+        order.number = "A-2";
+
+        assertEquals("A-1", resolver.resolve("number"));
+
+        resolver.clear();
+
+        assertEquals("A-2", resolver.resolve("number"));
+    }
+
+    @Test
+    void childKeepsProfiler() throws Exception {
+        var resolver = new ProcessorArgumentResolver(types).provide(new Order("A-1"));
+        var profiler = resolver.enableProfiling();
+        var child = resolver.child();
+
+        assertSame(profiler, child.getProfiler());
+        assertSame(profiler, child.getDataProvider().getProfiler());
+        assertEquals("A-1", child.resolve("number"));
+
+        var report = profiler.getReport();
+
+        assertEquals(1, report.getTags().get("number").getCount());
+        assertEquals(1, report.getResolvers().get(Order.class).getCount());
+    }
+
+    public static class Order {
+        public String number;
+
+        public Order(String number) {
+            this.number = number;
+        }
+    }
+}
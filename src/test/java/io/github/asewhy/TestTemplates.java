@@ -0,0 +1,149 @@
+package io.github.asewhy;
+
+import org.docx4j.TraversalUtil;
+import org.docx4j.finders.ClassFinder;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.P;
+import org.docx4j.wml.Text;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Минимальные шаблоны для тестов, собираются прямо из разметки основной части документа
+ */
+public final class TestTemplates {
+    private static final String CONTENT_TYPES =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+            "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+            "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+            "<Override PartName=\"/word/document.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml\"/>" +
+        "</Types>";
+
+    private static final String RELATIONSHIPS =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"word/document.xml\"/>" +
+        "</Relationships>";
+
+    private TestTemplates() {
+
+    }
+
+    /**
+     * Собрать шаблон
+     *
+     * @param body разметка содержимого w:body
+     * @return содержимое файла шаблона
+     */
+    public static byte[] docx(String... body) {
+        var output = new ByteArrayOutputStream();
+
+        try (var zip = new ZipOutputStream(output)) {
+            put(zip, "[Content_Types].xml", CONTENT_TYPES);
+            put(zip, "_rels/.rels", RELATIONSHIPS);
+            put(zip, "word/document.xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>" +
+                    String.join("", body) +
+                "<w:sectPr/></w:body></w:document>"
+            );
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * Загрузить шаблон через docx4j
+     *
+     * @param template содержимое файла шаблона
+     * @return загруженный шаблон
+     */
+    public static WordprocessingMLPackage load(byte[] template) throws Exception {
+        return WordprocessingMLPackage.load(new ByteArrayInputStream(template));
+    }
+
+    /**
+     * Абзац, текст каждого аргумента пишется в отдельный фрагмент (как это делает Word)
+     *
+     * @param runs текст фрагментов
+     * @return разметка абзаца
+     */
+    public static String p(String... runs) {
+        var result = new StringBuilder("<w:p>");
+
+        for(var run: runs) {
+            result.append("<w:r><w:t xml:space=\"preserve\">").append(run).append("</w:t></w:r>");
+        }
+
+        return result.append("</w:p>").toString();
+    }
+
+    /**
+     * Строка таблицы, в каждой ячейке один абзац
+     *
+     * @param cells текст ячеек
+     * @return разметка строки
+     */
+    public static String row(String... cells) {
+        var result = new StringBuilder("<w:tr>");
+
+        for(var cell: cells) {
+            result.append("<w:tc>").append(p(cell)).append("</w:tc>");
+        }
+
+        return result.append("</w:tr>").toString();
+    }
+
+    /**
+     * Таблица
+     *
+     * @param rows разметка строк
+     * @return разметка таблицы
+     */
+    public static String table(String... rows) {
+        return "<w:tbl><w:tblPr/>" + String.join("", rows) + "</w:tbl>";
+    }
+
+    /**
+     * Текст абзацев основной части документа
+     *
+     * @param document содержимое файла документа
+     * @return текст каждого абзаца верхнего уровня
+     */
+    public static List<String> paragraphs(byte[] document) throws Exception {
+        var result = new ArrayList<String>();
+
+        for(var node: load(document).getMainDocumentPart().getContent()) {
+            if(node instanceof P) {
+                var finder = new ClassFinder(Text.class);
+                var text = new StringBuilder();
+
+                new TraversalUtil(node, finder);
+
+                for(var current: finder.results) {
+                    text.append(((Text) current).getValue());
+                }
+
+                result.add(text.toString());
+            }
+        }
+
+        return result;
+    }
+
+    private static void put(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.asewhy.processors;
+
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static io.github.asewhy.TestTemplates.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionalBlockTest {
+    private SequenceResolveTagProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var types = new ProcessorTypeProvider();
+
+        types.provide(Order.class)
+            .bind("client", "client")
+            .bind("paid", "paid")
+            .bind("shipped", "shipped")
+            .sub("lines", "lines")
+                .bind("title", "title")
+            .build()
+        .build();
+
+        processor = new SequenceResolveTagProcessor(types);
+        processor.provide(new Order());
+    }
+
+    @Test
+    void keepsTrueAndRemovesFalseBlocks() throws Exception {
+        var result = render(
+            p("#paid"),
+            p("Payment from client"),
+            p("/paid"),
+            p("#shipped"),
+            p("On the way"),
+            p("/shipped"),
+            p("^shipped"),
+            p("Awaiting delivery"),
+            p("/shipped")
+        );
+
+        assertEquals(List.of("Payment from Acme", "Awaiting delivery"), result);
+    }
+
+    @Test
+    void removesNestedBlocksOfRemovedParent() throws Exception {
+        var result = render(
+            p("#shipped"),
+            p("#paid"),
+            p("Hidden"),
+            p("/paid"),
+            p("/shipped"),
+            p("client")
+        );
+
+        assertEquals(List.of("Acme"), result);
+    }
+
+    @Test
+    void keepsInvertedBlockOfEmptyList() throws Exception {
+        var result = render(
+            p("^lines"),
+            p("Nothing ordered"),
+            p("/lines")
+        );
+
+        assertEquals(List.of("Nothing ordered"), result);
+    }
+
+    @Test
+    void rejectsStrayClosingMarker() {
+        var error = assertThrows(ProcessorException.class, () -> render(
+            p("client"),
+            p("/paid")
+        ));
+
+        assertTrue(error.getMessage().contains("/paid"));
+    }
+
+    @Test
+    void rejectsMisnestedClosingMarker() {
+        var error = assertThrows(ProcessorException.class, () -> render(
+            p("#paid"),
+            p("#lines"),
+            p("/paid"),
+            p("/lines")
+        ));
+
+        assertTrue(error.getMessage().contains("lines"));
+    }
+
+    @Test
+    void rejectsUnclosedBlock() {
+        assertThrows(ProcessorException.class, () -> render(
+            p("#paid"),
+            p("client")
+        ));
+    }
+
+    private List<String> render(String... body) throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        processor.doProcess(new ByteArrayInputStream(docx(body)), output);
+
+        return paragraphs(output.toByteArray());
+    }
+
+    public static class Order {
+        public String client = "Acme";
+        public boolean paid = true;
+        public boolean shipped = false;
+        public List<Line> lines = List.of();
+    }
+
+    public static class Line {
+        public String title;
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.asewhy.raw;
+
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.processors.SequenceResolveTagProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.github.asewhy.TestTemplates.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+    private static final byte[] TEMPLATE = docx(
+        p("Order ", "number"),
+        table(
+            row("lines title", "lines amount"),
+            row("client")
+        )
+    );
+
+    private SequenceResolveTagProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        processor = createProcessor(true);
+    }
+
+    @Test
+    void roundTripsThroughBinaryFormat() throws Exception {
+        var compiled = processor.doCompile(new ByteArrayInputStream(TEMPLATE));
+        var read = CompiledTemplate.read(new ByteArrayInputStream(write(compiled)));
+
+        assertEquals(compiled.getTemplateDigest(), read.getTemplateDigest());
+        assertEquals(compiled.getCatalogDigest(), read.getCatalogDigest());
+        assertArrayEquals(render(compiled), render(read));
+    }
+
+    @Test
+    void rendersSameTextAsDocx4jPath() throws Exception {
+        var compiled = processor.doCompile(new ByteArrayInputStream(TEMPLATE));
+        var output = new ByteArrayOutputStream();
+
+        processor.doProcess(new ByteArrayInputStream(TEMPLATE), output);
+
+        assertEquals(paragraphs(output.toByteArray()), paragraphs(render(compiled)));
+        assertEquals(List.of("Order N-1"), paragraphs(render(compiled)));
+    }
+
+    @Test
+    void rejectsInputWithoutMagic() {
+        var error = assertThrows(ProcessorException.class, () -> CompiledTemplate.read(new ByteArrayInputStream(TEMPLATE)));
+
+        assertTrue(error.getMessage().contains("not a compiled template"));
+    }
+
+    @Test
+    void rejectsOtherFormatVersion() throws Exception {
+        var data = write(processor.doCompile(new ByteArrayInputStream(TEMPLATE)));
+
+        data[5]++;
+
+        var error = assertThrows(ProcessorException.class, () -> CompiledTemplate.read(new ByteArrayInputStream(data)));
+
+        assertTrue(error.getMessage().contains("format version"));
+    }
+
+    @Test
+    void rejectsTruncatedBody() throws Exception {
+        var data = write(processor.doCompile(new ByteArrayInputStream(TEMPLATE)));
+        var truncated = Arrays.copyOf(data, data.length / 2);
+
+        assertThrows(ProcessorException.class, () -> CompiledTemplate.read(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    void rejectsTemplateCompiledWithOtherTags() throws Exception {
+        var compiled = processor.doCompile(new ByteArrayInputStream(TEMPLATE));
+        var other = createProcessor(false);
+
+        assertNotEquals(compiled.getCatalogDigest(), other.doCompile(new ByteArrayInputStream(TEMPLATE)).getCatalogDigest());
+        assertThrows(ProcessorException.class, () -> other.doProcess(compiled, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void reusesArtifactOnlyWhileDigestsMatch(@TempDir Path directory) throws Exception {
+        var template = directory.resolve("order.docx");
+        var artifact = directory.resolve("order.dtc");
+
+        Files.write(template, TEMPLATE);
+
+        var first = processor.doCompile(template, artifact);
+        var written = Files.readAllBytes(artifact);
+
+        assertEquals(CompiledTemplate.digest(TEMPLATE), first.getTemplateDigest());
+
+        //
+        // Артефакт с совпадающими отпечатками только читается, поэтому старая дата изменения должна сохраниться
+        //
+        var modified = FileTime.fromMillis(0);
+
+        Files.setLastModifiedTime(artifact, modified);
+        processor.doCompile(template, artifact);
+
+        assertEquals(modified, Files.getLastModifiedTime(artifact));
+
+        var changed = docx(p("client"));
+
+        Files.write(template, changed);
+
+        var recompiled = processor.doCompile(template, artifact);
+
+        assertEquals(CompiledTemplate.digest(changed), recompiled.getTemplateDigest());
+        assertFalse(Arrays.equals(written, Files.readAllBytes(artifact)));
+
+        Files.write(artifact, new byte[] { 1, 2, 3 });
+
+        assertEquals(recompiled.getTemplateDigest(), processor.doCompile(template, artifact).getTemplateDigest());
+        assertEquals(recompiled.getTemplateDigest(), CompiledTemplate.read(artifact).getTemplateDigest());
+    }
+
+    private byte[] render(CompiledTemplate compiled) throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        processor.doProcess(compiled, output);
+
+        return output.toByteArray();
+    }
+
+    private static byte[] write(CompiledTemplate compiled) throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        compiled.write(output);
+
+        return output.toByteArray();
+    }
+
+    private static SequenceResolveTagProcessor createProcessor(boolean withClient) throws Exception {
+        var types = new ProcessorTypeProvider();
+        var order = types.provide(Order.class).bind("number", "number");
+
+        if(withClient) {
+            order.bind("client", "client");
+        }
+
+        order.sub("lines", "lines")
+                .bind("title", "title")
+                .bind("amount", "amount")
+            .build()
+        .build();
+
+        return new SequenceResolveTagProcessor(types).provide(new Order());
+    }
+
+    public static class Order {
+        public String number = "N-1";
+        public String client = "Acme";
+        public List<Line> lines = List.of(new Line("Desk", 2), new Line("Lamp", 1));
+    }
+
+    public static class Line {
+        public String title;
+        public int amount;
+
+        public Line(String title, int amount) {
+            this.title = title;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.asewhy.raw;
+
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.processors.SequenceResolveTagProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashSet;
+import java.util.List;
+
+import static io.github.asewhy.TestTemplates.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawTemplateScannerTest {
+    private SequenceResolveTagProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var types = new ProcessorTypeProvider();
+
+        types.provide(Order.class)
+            .bind("number", "number")
+            .bind("client", "client")
+            .bind("paid", "paid")
+            .sub("lines", "lines")
+                .bind("title", "title")
+                .bind("amount", "amount")
+            .build()
+        .build();
+
+        processor = new SequenceResolveTagProcessor(types);
+    }
+
+    @Test
+    void matchesValidationForTablesAndConditions() throws Exception {
+        assertScanMatchesValidation(docx(
+            p("Order ", "num", "ber"),
+            p("#paid"),
+            p("client"),
+            p("/paid"),
+            table(
+                row("number", "client"),
+                row("lines title", "amount")
+            )
+        ), "number", "client", "paid", "title#lines", "amount#lines");
+    }
+
+    @Test
+    void matchesValidationForNestedBlocksOfSameTag() throws Exception {
+        assertScanMatchesValidation(docx(
+            p("#lines"),
+            p("#lines"),
+            p("title"),
+            p("/lines"),
+            p("number"),
+            p("/lines"),
+            p("client")
+        ), "lines", "title#lines", "client");
+    }
+
+    @Test
+    void ignoresMarkersSplitAcrossTableCells() throws Exception {
+        assertScanMatchesValidation(docx(
+            table(
+                row("#cli", "ent"),
+                row("number")
+            )
+        ), "number");
+    }
+
+    @Test
+    void rejectsUnclosedBlockLikeValidation() throws Exception {
+        var template = docx(
+            p("#lines"),
+            p("title"),
+            p("client")
+        );
+
+        assertThrows(ProcessorException.class, () -> processor.doScan(new ByteArrayInputStream(template)));
+        assertThrows(ProcessorException.class, () -> processor.doValidate(load(template)));
+    }
+
+    private void assertScanMatchesValidation(byte[] template, String... expected) throws Exception {
+        var scanned = processor.doScan(new ByteArrayInputStream(template)).getTags();
+        var validated = processor.doValidate(load(template));
+
+        assertEquals(new HashSet<>(validated), new HashSet<>(scanned));
+        assertEquals(new HashSet<>(List.of(expected)), new HashSet<>(scanned));
+    }
+
+    public static class Order {
+        public String number = "N1";
+        public String client = "Client";
+        public boolean paid = true;
+        public List<Line> lines = List.of();
+    }
+
+    public static class Line {
+        public String title;
+        public int amount;
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.ProcessorArgumentResolver;
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+import static io.github.asewhy.TestTemplates.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRendererTest {
+    private static final byte[] TEMPLATE = docx(p("Dear ", "name", " from ", "company"));
+
+    private ProcessorArgumentResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var types = new ProcessorTypeProvider();
+
+        types.provide(Client.class).bind("name", "name").build();
+        types.provide(Company.class).bind("company", "title").build();
+
+        resolver = new ProcessorArgumentResolver(types)
+            .provide(new Client("Guest"))
+            .provide(new Company("Acme"));
+    }
+
+    @Test
+    void fetchesEachBatchOnce() throws Exception {
+        var calls = new ArrayList<List<Integer>>();
+        var renderer = new BatchRenderer<Integer>(resolver).provide(Client.class, keys -> {
+            calls.add(new ArrayList<>(keys));
+            return clients(keys);
+        });
+        var outputs = addRenders(renderer, 1, 2, 3, 4, 5);
+
+        renderer.setBatchSize(2);
+        renderer.render(TEMPLATE);
+
+        assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5)), calls);
+        assertEquals(0, renderer.getPending());
+
+        for(var key = 1; key <= 5; key++) {
+            assertEquals(List.of("Dear Client " + key + " from Acme"), paragraphs(outputs.get(key).toByteArray()));
+        }
+    }
+
+    @Test
+    void missingKeyUsesParentData() throws Exception {
+        var renderer = new BatchRenderer<Integer>(resolver).provide(Client.class, keys -> Map.of(1, new Client("Client 1")));
+        var outputs = addRenders(renderer, 1, 2);
+
+        renderer.render(TEMPLATE);
+
+        assertEquals(List.of("Dear Client 1 from Acme"), paragraphs(outputs.get(1).toByteArray()));
+        assertEquals(List.of("Dear Guest from Acme"), paragraphs(outputs.get(2).toByteArray()));
+    }
+
+    @Test
+    void failedFetchSkipsOnlyItsBatch() throws Exception {
+        var failure = new IllegalStateException("storage is down");
+        var renderer = new BatchRenderer<Integer>(resolver).provide(Client.class, keys -> {
+            if(keys.contains(3)) {
+                throw failure;
+            }
+
+            return clients(keys);
+        });
+        var outputs = addRenders(renderer, 1, 2, 3, 4, 5);
+
+        renderer.setBatchSize(2);
+
+        var error = assertThrows(ProcessorException.class, () -> renderer.render(TEMPLATE));
+
+        assertSame(failure, error.getCause());
+        assertEquals(0, error.getSuppressed().length);
+        assertEquals(0, outputs.get(3).size());
+        assertEquals(0, outputs.get(4).size());
+        assertEquals(List.of("Dear Client 5 from Acme"), paragraphs(outputs.get(5).toByteArray()));
+        assertEquals(0, renderer.getPending());
+    }
+
+    @Test
+    void aggregatesErrorsOfAllBatches() throws Exception {
+        var renderer = new BatchRenderer<Integer>(resolver).provide(Client.class, keys -> {
+            if(keys.contains(1)) {
+                throw new IllegalStateException("first batch");
+            }
+
+            return clients(keys);
+        });
+        var output = new ByteArrayOutputStream();
+
+        renderer.setBatchSize(1);
+        renderer.add(1, new ByteArrayOutputStream()).add(2, new FailingOutput()).add(3, output).add(4, new FailingOutput());
+
+        var error = assertThrows(ProcessorException.class, () -> renderer.render(TEMPLATE));
+
+        assertEquals("first batch", error.getCause().getMessage());
+        assertEquals(2, error.getSuppressed().length);
+        assertEquals(List.of("Dear Client 3 from Acme"), paragraphs(output.toByteArray()));
+    }
+
+    @Test
+    void rejectsNonPositiveBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchRenderer<Integer>(resolver).setBatchSize(0));
+    }
+
+    private static Map<Integer, Client> clients(Collection<Integer> keys) {
+        var result = new HashMap<Integer, Client>();
+
+        for(var key: keys) {
+            result.put(key, new Client("Client " + key));
+        }
+
+        return result;
+    }
+
+    private static Map<Integer, ByteArrayOutputStream> addRenders(BatchRenderer<Integer> renderer, Integer... keys) {
+        var result = new LinkedHashMap<Integer, ByteArrayOutputStream>();
+
+        for(var key: keys) {
+            var output = new ByteArrayOutputStream();
+
+            renderer.add(key, output);
+            result.put(key, output);
+        }
+
+        return result;
+    }
+
+    private static final class FailingOutput extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("Output is closed.");
+        }
+    }
+
+    public static class Client {
+        public String name;
+
+        public Client(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Company {
+        public String title;
+
+        public Company(String title) {
+            this.title = title;
+        }
+    }
+}
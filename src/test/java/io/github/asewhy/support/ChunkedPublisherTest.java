@@ -0,0 +1,198 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.interfaces.ChunkProducer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedPublisherTest {
+    private static final int PARTS = 10;
+    private static final int PART_SIZE = 10;
+    private static final int CHUNK_SIZE = 16;
+
+    @Test
+    void producesOnlyOnDemand() {
+        var producer = new CountingProducer();
+        var publisher = new ChunkedPublisher(producer::open, Runnable::run, CHUNK_SIZE);
+        var subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+
+        assertEquals(0, producer.produced.get());
+        assertTrue(subscriber.chunks.isEmpty());
+
+        subscriber.subscription.request(1);
+
+        assertEquals(1, subscriber.chunks.size());
+        assertEquals(CHUNK_SIZE, subscriber.chunks.get(0).length);
+        assertEquals(2, producer.produced.get());
+
+        subscriber.subscription.request(1);
+
+        assertEquals(2, subscriber.chunks.size());
+        assertEquals(2 * PART_SIZE - CHUNK_SIZE, subscriber.chunks.get(1).length);
+        assertEquals(2, producer.produced.get());
+
+        subscriber.subscription.request(1);
+
+        assertEquals(3, subscriber.chunks.size());
+        assertEquals(4, producer.produced.get());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void deliversWholeDocumentAndCloses() {
+        var producer = new CountingProducer();
+        var publisher = new ChunkedPublisher(producer::open, Runnable::run, CHUNK_SIZE);
+        var subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        var document = new ByteArrayOutputStream();
+
+        for(var chunk: subscriber.chunks) {
+            assertTrue(chunk.length <= CHUNK_SIZE);
+            document.writeBytes(chunk);
+        }
+
+        assertArrayEquals(CountingProducer.expected(), document.toByteArray());
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(1, producer.closed.get());
+        assertNull(producer.closeError.get());
+    }
+
+    @Test
+    void cancelClosesProducerWithoutSignal() {
+        var producer = new CountingProducer();
+        var publisher = new ChunkedPublisher(producer::open, Runnable::run, CHUNK_SIZE);
+        var subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        assertEquals(1, subscriber.chunks.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(1, producer.closed.get());
+        assertInstanceOf(CancellationException.class, producer.closeError.get());
+    }
+
+    @Test
+    void nonPositiveRequestFails() {
+        var producer = new CountingProducer();
+        var publisher = new ChunkedPublisher(producer::open, Runnable::run, CHUNK_SIZE);
+        var subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        assertTrue(subscriber.chunks.isEmpty());
+    }
+
+    @Test
+    void producerErrorIsSignalled() {
+        var failure = new IllegalStateException("broken");
+        var publisher = new ChunkedPublisher(output -> () -> { throw failure; }, Runnable::run, CHUNK_SIZE);
+        var subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertSame(failure, subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void secondSubscriberIsRejected() {
+        var publisher = new ChunkedPublisher(new CountingProducer()::open, Runnable::run, CHUNK_SIZE);
+        var first = new RecordingSubscriber();
+        var second = new RecordingSubscriber();
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertNull(first.error);
+        assertInstanceOf(IllegalStateException.class, second.error);
+    }
+
+    private static final class CountingProducer {
+        private final AtomicInteger produced = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+        private final AtomicReference<Throwable> closeError = new AtomicReference<>();
+
+        private static byte[] expected() {
+            var result = new byte[PARTS * PART_SIZE];
+
+            for(var i = 0; i < result.length; i++) {
+                result[i] = (byte) (i / PART_SIZE);
+            }
+
+            return result;
+        }
+
+        private ChunkProducer open(OutputStream output) {
+            return new ChunkProducer() {
+                @Override
+                public boolean produce() throws Exception {
+                    var part = produced.getAndIncrement();
+
+                    for(var i = 0; i < PART_SIZE; i++) {
+                        output.write(part);
+                    }
+
+                    return part + 1 < PARTS;
+                }
+
+                @Override
+                public void close(Throwable error) {
+                    closed.incrementAndGet();
+                    closeError.set(error);
+                }
+            };
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            var chunk = new byte[item.remaining()];
+            item.get(chunk);
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.github.asewhy.support;
+
+import io.github.asewhy.ProcessorTypeProvider;
+import io.github.asewhy.exceptions.ProcessorException;
+import io.github.asewhy.processors.SequenceResolveTagProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static io.github.asewhy.TestTemplates.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderSchedulerTest {
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admitsWaitersInArrivalOrder() throws Exception {
+        var scheduler = new RenderScheduler(1, 10, Long.MAX_VALUE, WAIT);
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        var first = new Blocker(scheduler, 0);
+        var tasks = new ArrayList<Future<?>>();
+
+        first.awaitStarted();
+
+        for(var name: List.of("b", "c", "d")) {
+            var depth = scheduler.getQueueDepth();
+
+            tasks.add(executor.submit(() -> {
+                scheduler.execute(0, () -> order.add(name));
+                return null;
+            }));
+
+            await(() -> scheduler.getQueueDepth() == depth + 1);
+        }
+
+        first.finish();
+
+        for(var task: tasks) {
+            task.get(WAIT.toSeconds(), TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("b", "c", "d"), order);
+        assertEquals(4, scheduler.getCompleted());
+    }
+
+    @Test
+    void smallRenderDoesNotOvertakeWaitingLargeOne() throws Exception {
+        var scheduler = new RenderScheduler(4, 10, 100, WAIT);
+        var running = new Blocker(scheduler, 60);
+
+        running.awaitStarted();
+
+        var large = new Blocker(scheduler, 60);
+
+        await(() -> scheduler.getQueueDepth() == 1);
+
+        var small = new Blocker(scheduler, 10);
+
+        await(() -> scheduler.getQueueDepth() == 2);
+
+        assertEquals(1, scheduler.getActive());
+
+        running.finish();
+        large.awaitStarted();
+        small.awaitStarted();
+
+        assertEquals(2, scheduler.getActive());
+        assertEquals(70, scheduler.getReservedBytes());
+
+        large.finish();
+        small.finish();
+    }
+
+    @Test
+    void oversizedRenderRunsAlone() throws Exception {
+        var scheduler = new RenderScheduler(4, 10, 100, WAIT);
+        var running = new Blocker(scheduler, 10);
+
+        running.awaitStarted();
+
+        var oversized = new Blocker(scheduler, 500);
+
+        await(() -> scheduler.getQueueDepth() == 1);
+
+        running.finish();
+        oversized.awaitStarted();
+
+        assertEquals(1, scheduler.getActive());
+
+        oversized.finish();
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        var scheduler = new RenderScheduler(1, 1, Long.MAX_VALUE, WAIT);
+        var running = new Blocker(scheduler, 0);
+
+        running.awaitStarted();
+
+        var waiting = new Blocker(scheduler, 0);
+
+        await(() -> scheduler.getQueueDepth() == 1);
+
+        assertThrows(ProcessorException.class, () -> scheduler.execute(0, () -> fail("Render must be rejected")));
+        assertEquals(1, scheduler.getRejected());
+
+        running.finish();
+        waiting.finish();
+    }
+
+    @Test
+    void rejectsAfterMaxWait() throws Exception {
+        var scheduler = new RenderScheduler(1, 10, Long.MAX_VALUE, Duration.ofMillis(50));
+        var running = new Blocker(scheduler, 0);
+
+        running.awaitStarted();
+
+        assertThrows(ProcessorException.class, () -> scheduler.execute(0, () -> fail("Render must be rejected")));
+        assertEquals(1, scheduler.getRejected());
+        assertEquals(0, scheduler.getQueueDepth());
+
+        running.finish();
+    }
+
+    @Test
+    void rowEstimateCountsTowardsAdmission() throws Exception {
+        var types = new ProcessorTypeProvider();
+
+        types.provide(Order.class)
+            .sub("lines", "lines")
+                .bind("title", "title")
+            .build()
+        .build();
+
+        var processor = new SequenceResolveTagProcessor(types).provide(new Order());
+        var template = docx(table(row("lines title")));
+        var estimate = createScheduler(0).estimate(processor, template);
+
+        assertEquals(300, estimate);
+
+        var scheduler = createScheduler(estimate + 50);
+        var running = new Blocker(scheduler, 100);
+
+        running.awaitStarted();
+
+        var render = executor.submit(() -> {
+            scheduler.doProcess(processor, template, new ByteArrayOutputStream());
+            return null;
+        });
+
+        //
+        // Шаблон без строк поместился бы в оставшийся бюджет, а вместе со строками - нет
+        //
+        await(() -> scheduler.getQueueDepth() == 1);
+
+        assertFalse(render.isDone());
+        assertEquals(100, scheduler.getReservedBytes());
+
+        running.finish();
+        render.get(WAIT.toSeconds(), TimeUnit.SECONDS);
+
+        assertEquals(0, scheduler.getReservedBytes());
+    }
+
+    private static RenderScheduler createScheduler(long memoryBudget) {
+        var result = new RenderScheduler(4, 10, memoryBudget, WAIT);
+
+        result.setTemplateFactor(0);
+        result.setRowBytes(100);
+
+        return result;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + WAIT.toNanos();
+
+        while (!condition.getAsBoolean()) {
+            if(System.nanoTime() > deadline) {
+                fail("Condition was not met within " + WAIT);
+            }
+
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Обработка, которая выполняется, пока ее не завершат
+     */
+    private final class Blocker {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Future<?> task;
+
+        private Blocker(RenderScheduler scheduler, long estimate) {
+            this.task = executor.submit(() -> {
+                scheduler.execute(estimate, () -> {
+                    started.countDown();
+
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new ProcessorException(e);
+                    }
+                });
+
+                return null;
+            });
+        }
+
+        private void awaitStarted() throws InterruptedException {
+            assertTrue(started.await(WAIT.toSeconds(), TimeUnit.SECONDS));
+        }
+
+        private void finish() throws Exception {
+            release.countDown();
+            task.get(WAIT.toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    public static class Order {
+        public List<Line> lines = List.of(new Line(), new Line(), new Line());
+    }
+
+    public static class Line {
+        public String title = "item";
+    }
+}
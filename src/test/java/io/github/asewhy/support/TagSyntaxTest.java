@@ -0,0 +1,80 @@
+package io.github.asewhy.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagSyntaxTest {
+    private static final TagSyntax BRACES = TagSyntax.delimited("{{", "}}");
+    private static final Map<String, String> VALUES = Map.of("title", "Desk", "amount", "2");
+
+    @Test
+    void resolvesTagWithScopePrefix() {
+        var tags = BRACES.prepare(List.of("title", "amount"));
+
+        assertEquals("title", BRACES.find("Item {{lines.title}}", tags, "lines", tag -> true));
+        assertEquals("title", BRACES.find("Item {{ title }}", tags, "lines", tag -> true));
+        assertEquals("Desk x 2", BRACES.replace("{{lines.title}} x {{amount}}", tags, "lines", VALUES::get));
+    }
+
+    @Test
+    void ignoresPrefixOfOtherScope() {
+        var tags = BRACES.prepare(List.of("title"));
+
+        assertNull(BRACES.find("{{lines.title}}", tags, null, tag -> true));
+        assertNull(BRACES.find("{{other.title}}", tags, "lines", tag -> true));
+        assertNull(BRACES.find("{{linesx.title}}", tags, "lines", tag -> true));
+        assertNull(BRACES.find("{{lines.}}", tags, "lines", tag -> true));
+        assertEquals("{{other.title}}", BRACES.replace("{{other.title}}", tags, "lines", VALUES::get));
+    }
+
+    @Test
+    void keepsUnknownAndUnclosedTags() {
+        var tags = BRACES.prepare(List.of("title"));
+
+        assertEquals("{{ Desk {{unknown}} {{title", BRACES.replace("{{ {{title}} {{unknown}} {{title", tags, null, VALUES::get));
+        assertEquals("[]", BRACES.replace("[{{title}}]", tags, null, tag -> null));
+    }
+
+    @Test
+    void countsEveryOccurrence() {
+        var tags = BRACES.prepare(List.of("title", "amount"));
+        var found = new ArrayList<String>();
+
+        BRACES.collect("{{title}} {{lines.title}} {{amount}}", tags, "lines", found);
+
+        assertEquals(List.of("title", "title", "amount"), found);
+        assertEquals(3, BRACES.count("{{title}} {{lines.title}} {{amount}}", tags, "lines"));
+        assertEquals(2, TagSyntax.PLAIN.count("title and title", List.of("title"), null));
+    }
+
+    @Test
+    void findStopsAtFirstAcceptedTag() {
+        var tags = BRACES.prepare(List.of("title", "amount"));
+
+        assertEquals("amount", BRACES.find("{{title}} {{amount}}", tags, null, "amount"::equals));
+        assertNull(BRACES.find("{{title}}", tags, null, tag -> false));
+    }
+
+    @Test
+    void readsBlockMarkers() {
+        assertEquals("#paid", BRACES.marker(" {{#paid}} "));
+        assertEquals("/paid", BRACES.marker("{{ /paid }}"));
+        assertEquals("^paid", TagSyntax.PLAIN.marker("^paid"));
+        assertNull(BRACES.marker("{{paid}}"));
+        assertNull(BRACES.marker("{{#}}"));
+        assertNull(BRACES.marker("#paid"));
+        assertNull(BRACES.marker("{{#paid}} now"));
+    }
+
+    @Test
+    void resolvesSyntaxByDelimiters() {
+        assertSame(TagSyntax.PLAIN, TagSyntax.of("", ""));
+        assertEquals("${tag}", TagSyntax.of("${", "}").toString());
+        assertThrows(IllegalArgumentException.class, () -> TagSyntax.delimited("{{", ""));
+    }
+}
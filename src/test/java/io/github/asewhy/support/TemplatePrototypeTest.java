@@ -0,0 +1,101 @@
+package io.github.asewhy.support;
+
+import org.docx4j.openpackaging.contenttype.ContentType;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplatePrototypeTest {
+    private static final String IMAGE_NAME = "word/media/image1.png";
+
+    @Test
+    void copiesSaveSharedImageConcurrently() throws Exception {
+        var image = new byte[4 * 1024 * 1024];
+        new Random(42).nextBytes(image);
+
+        var prototype = new TemplatePrototype(createTemplate(image));
+        var executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for(var attempt = 0; attempt < 5; attempt++) {
+                var first = executor.submit(save(prototype));
+                var second = executor.submit(save(prototype));
+
+                assertArrayEquals(image, readImage(first));
+                assertArrayEquals(image, readImage(second));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void copiesDoNotShareImageBuffer() throws Exception {
+        var prototype = new TemplatePrototype(createTemplate(new byte[] { 1, 2, 3 }));
+        var name = new PartName("/" + IMAGE_NAME);
+
+        var source = (BinaryPart) prototype.getTemplate().getParts().get(name);
+        var first = (BinaryPart) prototype.newInstance().getParts().get(name);
+        var second = (BinaryPart) prototype.newInstance().getParts().get(name);
+
+        assertNotSame(source.getBuffer(), first.getBuffer());
+        assertNotSame(first.getBuffer(), second.getBuffer());
+        assertArrayEquals(source.getBytes(), first.getBytes());
+    }
+
+    @Test
+    void copyDoesNotShareMainPart() throws Exception {
+        var prototype = new TemplatePrototype(createTemplate(new byte[] { 1, 2, 3 }));
+        var copy = prototype.newInstance();
+
+        copy.getMainDocumentPart().addParagraphOfText("changed");
+
+        assertEquals(1, copy.getMainDocumentPart().getContent().size());
+        assertTrue(prototype.getTemplate().getMainDocumentPart().getContent().isEmpty());
+    }
+
+    private static WordprocessingMLPackage createTemplate(byte[] image) throws Exception {
+        var template = WordprocessingMLPackage.createPackage();
+        var part = new BinaryPart(new PartName("/" + IMAGE_NAME));
+
+        part.setBinaryData(image);
+        part.setContentType(new ContentType("image/png"));
+        part.setRelationshipType(Namespaces.IMAGE);
+
+        template.getMainDocumentPart().addTargetPart(part);
+
+        return template;
+    }
+
+    private static Callable<byte[]> save(TemplatePrototype prototype) {
+        return () -> {
+            var output = new ByteArrayOutputStream();
+            prototype.newInstance().save(output);
+            return output.toByteArray();
+        };
+    }
+
+    private static byte[] readImage(Future<byte[]> document) throws Exception {
+        try(var zip = new ZipInputStream(new ByteArrayInputStream(document.get()))) {
+            for(var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if(IMAGE_NAME.equals(entry.getName())) {
+                    return zip.readAllBytes();
+                }
+            }
+        }
+
+        return fail("Image part " + IMAGE_NAME + " is missing");
+    }
+}